@@ -0,0 +1,54 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.Binary;
+import io.socket.parser.Packet;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Binary#deconstructPacket} and {@link Binary#reconstructPacket}.
+ *
+ * <p>The reconstruction replaces the placeholders in place, so {@code roundTrip} measures both
+ * steps on a fresh deconstructed packet.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryBenchmark {
+
+    @Param({"binary", "manyAttachments"})
+    public String payload;
+
+    private Packet<JSONArray> packet;
+
+    @Setup
+    public void setup() {
+        this.packet = PayloadSizes.payload(this.payload);
+    }
+
+    @Benchmark
+    public Binary.DeconstructedPacket deconstruct() {
+        return Binary.deconstructPacket(Payloads.copy(this.packet));
+    }
+
+    @Benchmark
+    public Packet roundTrip() {
+        Binary.DeconstructedPacket deconstructed = Binary.deconstructPacket(Payloads.copy(this.packet));
+        return Binary.reconstructPacket(deconstructed.packet, deconstructed.buffers);
+    }
+}
@@ -0,0 +1,100 @@
+package io.socket.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two result files produced with {@code -rf json}, for example the results of the
+ * previous release and of the current snapshot:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar io.socket.benchmarks.CompareResults baseline.json current.json
+ * </pre>
+ *
+ * <p>For each benchmark and set of parameters, prints the throughput and the allocation per
+ * operation (when run with {@code -prof gc}) of both runs, and the ratio current / baseline.</p>
+ */
+public final class CompareResults {
+
+    private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+    private CompareResults() {}
+
+    public static void main(String[] args) throws IOException, JSONException {
+        if (args.length != 2) {
+            System.err.println("usage: CompareResults <baseline.json> <current.json>");
+            System.exit(1);
+        }
+        Map<String, JSONObject> baseline = read(args[0]);
+        Map<String, JSONObject> current = read(args[1]);
+
+        System.out.println(String.format("%-72s %14s %14s %7s %12s %12s %7s",
+                "benchmark", "ops (base)", "ops (curr)", "ratio", "B/op (base)", "B/op (curr)", "ratio"));
+        for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+            JSONObject before = baseline.get(entry.getKey());
+            JSONObject after = entry.getValue();
+            double scoreBefore = before != null ? score(before) : Double.NaN;
+            double scoreAfter = score(after);
+            double allocBefore = before != null ? alloc(before) : Double.NaN;
+            double allocAfter = alloc(after);
+            System.out.println(String.format("%-72s %14.1f %14.1f %7.2f %12.1f %12.1f %7.2f",
+                    entry.getKey(), scoreBefore, scoreAfter, scoreAfter / scoreBefore,
+                    allocBefore, allocAfter, allocAfter / allocBefore));
+        }
+    }
+
+    private static Map<String, JSONObject> read(String path) throws IOException, JSONException {
+        JSONArray results;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(Paths.get(path)), StandardCharsets.UTF_8)) {
+            results = new JSONArray(new JSONTokener(reader));
+        }
+        Map<String, JSONObject> map = new LinkedHashMap<>();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            map.put(key(result), result);
+        }
+        return map;
+    }
+
+    private static String key(JSONObject result) throws JSONException {
+        String benchmark = result.getString("benchmark");
+        StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+        JSONObject params = result.optJSONObject("params");
+        if (params != null) {
+            List<String> names = new ArrayList<>();
+            Iterator<?> iterator = params.keys();
+            while (iterator.hasNext()) {
+                names.add((String) iterator.next());
+            }
+            names.sort(null);
+            for (String name : names) {
+                key.append(' ').append(name).append('=').append(params.getString(name));
+            }
+        }
+        return key.toString();
+    }
+
+    private static double score(JSONObject result) throws JSONException {
+        return result.getJSONObject("primaryMetric").getDouble("score");
+    }
+
+    private static double alloc(JSONObject result) {
+        JSONObject secondary = result.optJSONObject("secondaryMetrics");
+        JSONObject metric = secondary != null ? secondary.optJSONObject(ALLOC_RATE_NORM) : null;
+        return metric != null ? metric.optDouble("score") : Double.NaN;
+    }
+}
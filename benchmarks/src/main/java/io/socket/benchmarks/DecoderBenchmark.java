@@ -0,0 +1,76 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.LazyPayload;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost of a single packet with {@link IOParser.Decoder}, from the text frame to the
+ * reconstructed packet.
+ *
+ * <p>With {@code lazyEvents}, the payload of the event is decoded in the callback, as
+ * {@code Socket} does when the event has a listener.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecoderBenchmark {
+
+    @Param({"small", "deep", "largeArray", "binary", "manyAttachments"})
+    public String payload;
+
+    @Param({"false", "true"})
+    public boolean lazyEvents;
+
+    private IOParser.Decoder decoder;
+    private Blackhole blackhole;
+    private Object[] frames;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.lazyEvents = this.lazyEvents;
+        this.decoder = new IOParser.Decoder(opts);
+        this.blackhole = blackhole;
+        this.decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                Object data = packet.data;
+                if (data instanceof LazyPayload) {
+                    data = ((LazyPayload) data).decode();
+                }
+                DecoderBenchmark.this.blackhole.consume(data);
+            }
+        });
+        this.frames = Payloads.encode(new IOParser.Encoder(), PayloadSizes.payload(this.payload));
+    }
+
+    @Benchmark
+    public void add() {
+        for (Object frame : this.frames) {
+            if (frame instanceof String) {
+                this.decoder.add((String) frame);
+            } else {
+                this.decoder.add((byte[]) frame);
+            }
+        }
+    }
+}
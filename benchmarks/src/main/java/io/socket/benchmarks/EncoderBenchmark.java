@@ -0,0 +1,53 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.MsgPackParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost of a single packet. Run with {@code -prof gc} to get the allocation per emit
+ * ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncoderBenchmark {
+
+    @Param({"small", "deep", "largeArray", "binary", "manyAttachments"})
+    public String payload;
+
+    @Param({"json", "msgpack"})
+    public String parser;
+
+    private Packet<JSONArray> packet;
+    private Parser.Encoder encoder;
+
+    @Setup
+    public void setup() {
+        this.packet = PayloadSizes.payload(this.payload);
+        this.encoder = "msgpack".equals(this.parser) ? new MsgPackParser.Encoder() : new IOParser.Encoder();
+    }
+
+    @Benchmark
+    public Object[] encode() {
+        return Payloads.encode(this.encoder, this.packet);
+    }
+}
@@ -0,0 +1,44 @@
+package io.socket.benchmarks;
+
+import io.socket.hasbinary.HasBinary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link HasBinary#hasBinary}, which walks the whole payload when there is no
+ * attachment.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HasBinaryBenchmark {
+
+    @Param({"small", "deep", "largeArray", "binary", "manyAttachments"})
+    public String payload;
+
+    private Object data;
+
+    @Setup
+    public void setup() {
+        this.data = PayloadSizes.payload(this.payload).data;
+    }
+
+    @Benchmark
+    public boolean hasBinary() {
+        return HasBinary.hasBinary(this.data);
+    }
+}
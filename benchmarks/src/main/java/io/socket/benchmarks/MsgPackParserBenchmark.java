@@ -0,0 +1,81 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.MsgPackParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the encoding and decoding cost of {@link MsgPackParser} and {@link IOParser}.
+ *
+ * <p>Run {@link PayloadSizes} to compare the size of the frames.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MsgPackParserBenchmark {
+
+    @Param({"small", "largeArray", "binary"})
+    public String payload;
+
+    @Param({"json", "msgpack"})
+    public String parser;
+
+    private Packet<JSONArray> packet;
+    private Parser.Encoder encoder;
+    private Parser.Decoder decoder;
+    private Object[] frames;
+
+    @Setup
+    public void setup() {
+        this.packet = PayloadSizes.payload(this.payload);
+        if ("msgpack".equals(this.parser)) {
+            this.encoder = new MsgPackParser.Encoder();
+            this.decoder = new MsgPackParser.Decoder();
+        } else {
+            this.encoder = new IOParser.Encoder();
+            this.decoder = new IOParser.Decoder();
+        }
+        this.frames = Payloads.encode(this.encoder, this.packet);
+    }
+
+    @Benchmark
+    public Object[] encode() {
+        return Payloads.encode(this.encoder, this.packet);
+    }
+
+    @Benchmark
+    public void decode(final Blackhole blackhole) {
+        this.decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                blackhole.consume(packet);
+            }
+        });
+        for (Object frame : this.frames) {
+            if (frame instanceof String) {
+                this.decoder.add((String) frame);
+            } else {
+                this.decoder.add((byte[]) frame);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.MsgPackParser;
+import io.socket.parser.Packet;
+import org.json.JSONArray;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prints the number of bytes sent on the wire for each payload, with {@link IOParser} and
+ * {@link MsgPackParser}.
+ */
+public final class PayloadSizes {
+
+    private static final String[] PAYLOADS = {"small", "deep", "largeArray", "binary", "manyAttachments"};
+
+    private PayloadSizes() {}
+
+    /*package*/ static Packet<JSONArray> payload(String name) {
+        switch (name) {
+            case "small":
+                return Payloads.smallEvent();
+            case "deep":
+                return Payloads.deepEvent(32);
+            case "largeArray":
+                return Payloads.largeArrayEvent(1000);
+            case "binary":
+                return Payloads.binaryEvent(4, 64 * 1024);
+            case "manyAttachments":
+                return Payloads.binaryEvent(64, 1024);
+            default:
+                throw new IllegalArgumentException("unknown payload " + name);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println(String.format("%-16s %10s %10s %10s", "payload", "json", "msgpack", "ratio"));
+        for (String name : PAYLOADS) {
+            Packet<JSONArray> packet = payload(name);
+            int json = size(Payloads.encode(new IOParser.Encoder(), packet));
+            int msgpack = size(Payloads.encode(new MsgPackParser.Encoder(), packet));
+            System.out.println(String.format("%-16s %10d %10d %10.2f", name, json, msgpack, (double) msgpack / json));
+        }
+    }
+
+    private static int size(Object[] frames) {
+        int size = 0;
+        for (Object frame : frames) {
+            size += frame instanceof String
+                    ? ((String) frame).getBytes(StandardCharsets.UTF_8).length
+                    : ((byte[]) frame).length;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,126 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packets shared by the benchmarks.
+ */
+public final class Payloads {
+
+    private Payloads() {}
+
+    /**
+     * A small event, as sent by most applications.
+     */
+    public static Packet<JSONArray> smallEvent() {
+        try {
+            JSONObject position = new JSONObject();
+            position.put("x", 12);
+            position.put("y", 34.5);
+            position.put("label", "player-1");
+            return event("position", position);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * An event with a payload nested {@code depth} levels deep.
+     */
+    public static Packet<JSONArray> deepEvent(int depth) {
+        try {
+            JSONObject root = new JSONObject();
+            JSONObject current = root;
+            for (int i = 0; i < depth; i++) {
+                JSONObject child = new JSONObject();
+                current.put("id", i);
+                current.put("name", "level-" + i);
+                current.put("child", child);
+                current = child;
+            }
+            return event("deep", root);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * An event with an array of {@code size} small objects.
+     */
+    public static Packet<JSONArray> largeArrayEvent(int size) {
+        try {
+            JSONArray items = new JSONArray();
+            for (int i = 0; i < size; i++) {
+                JSONObject item = new JSONObject();
+                item.put("id", i);
+                item.put("price", i * 1.25);
+                item.put("symbol", "SYM" + i);
+                items.put(item);
+            }
+            return event("snapshot", items);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * An event with {@code count} attachments of {@code size} bytes each, next to some metadata.
+     */
+    public static Packet<JSONArray> binaryEvent(int count, int size) {
+        try {
+            JSONArray images = new JSONArray();
+            for (int i = 0; i < count; i++) {
+                JSONObject image = new JSONObject();
+                image.put("name", "image-" + i + ".png");
+                image.put("width", 640);
+                image.put("height", 480);
+                byte[] bytes = new byte[size];
+                for (int j = 0; j < size; j++) {
+                    bytes[j] = (byte) j;
+                }
+                image.put("data", bytes);
+                images.put(image);
+            }
+            return event("images", images);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Encodes the packet, returning the frames that would be written to the transport.
+     */
+    public static Object[] encode(Parser.Encoder encoder, Packet<JSONArray> packet) {
+        final List<Object[]> result = new ArrayList<>(1);
+        encoder.encode(copy(packet), new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                result.add(data);
+            }
+        });
+        return result.get(0);
+    }
+
+    /**
+     * The encoder may update the type of the packet, so each encoding starts from a fresh copy.
+     */
+    public static Packet<JSONArray> copy(Packet<JSONArray> packet) {
+        Packet<JSONArray> copy = new Packet<>(packet.type, packet.data);
+        copy.nsp = packet.nsp;
+        copy.id = packet.id;
+        return copy;
+    }
+
+    private static Packet<JSONArray> event(String name, Object arg) {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put(name).put(arg));
+        packet.nsp = "/";
+        return packet;
+    }
+}
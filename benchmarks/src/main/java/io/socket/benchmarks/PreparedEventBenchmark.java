@@ -0,0 +1,89 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import io.socket.parser.PreparedEvent;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sending the same event to 100 sockets, spread over 10 namespaces, with and without
+ * {@link PreparedEvent}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PreparedEventBenchmark {
+
+    private static final int SOCKETS = 100;
+    private static final int NAMESPACES = 10;
+
+    @Param({"small", "largeArray", "binary"})
+    public String payload;
+
+    private Packet<JSONArray> packet;
+    private IOParser.Encoder encoder;
+    private String[] namespaces;
+
+    @Setup
+    public void setup() {
+        this.packet = PayloadSizes.payload(this.payload);
+        this.encoder = new IOParser.Encoder();
+        this.namespaces = new String[NAMESPACES];
+        for (int i = 0; i < NAMESPACES; i++) {
+            this.namespaces[i] = "/room-" + i;
+        }
+    }
+
+    @Benchmark
+    public void encodeEach(Blackhole blackhole) {
+        for (int i = 0; i < SOCKETS; i++) {
+            Packet<JSONArray> copy = Payloads.copy(this.packet);
+            copy.nsp = this.namespaces[i % NAMESPACES];
+            blackhole.consume(encode(copy));
+        }
+    }
+
+    @Benchmark
+    public void prepared(Blackhole blackhole) {
+        JSONArray data = this.packet.data;
+        Object[] args = new Object[data.length() - 1];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = data.opt(i + 1);
+        }
+        PreparedEvent event = new PreparedEvent(data.optString(0), args);
+        for (int i = 0; i < SOCKETS; i++) {
+            Packet<PreparedEvent> prepared = new Packet<>(Parser.EVENT, event);
+            prepared.nsp = this.namespaces[i % NAMESPACES];
+            blackhole.consume(encode(prepared));
+        }
+    }
+
+    private Object[] encode(Packet<?> packet) {
+        final Object[][] result = new Object[1][];
+        this.encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                result[0] = data;
+            }
+        });
+        return result[0];
+    }
+}
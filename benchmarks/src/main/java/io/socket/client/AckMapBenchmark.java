@@ -0,0 +1,72 @@
+package io.socket.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the registry of the pending acknowledgements: {@link AckMap} compared to the
+ * {@code ConcurrentHashMap<Integer, Ack>} it replaces.
+ *
+ * <p>Each operation registers the acknowledgement of a new packet and resolves the oldest one, with
+ * {@code pending} acknowledgements outstanding, like a socket emitting with acks at a steady rate. Ids above 127
+ * are not in the {@code Integer} cache, so the boxed map allocates a key and a node per packet.</p>
+ *
+ * <p>In the {@code io.socket.client} package since {@link AckMap} is package-private.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AckMapBenchmark {
+
+    private static final Ack ACK = new Ack() {
+        @Override
+        public void call(Object... args) {}
+    };
+
+    @Param({"16", "10000"})
+    public int pending;
+
+    private AckMap ackMap;
+    private Map<Integer, Ack> concurrentMap;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.ackMap = new AckMap();
+        this.concurrentMap = new ConcurrentHashMap<>();
+        for (this.next = 0; this.next < this.pending; this.next++) {
+            this.ackMap.put(this.next, ACK);
+            this.concurrentMap.put(this.next, ACK);
+        }
+    }
+
+    @Benchmark
+    public Ack ackMap() {
+        int id = this.next++;
+        this.ackMap.put(id, ACK);
+        return this.ackMap.remove(id - this.pending);
+    }
+
+    @Benchmark
+    public Ack concurrentHashMap() {
+        int id = this.next++;
+        this.concurrentMap.put(id, ACK);
+        return this.concurrentMap.remove(id - this.pending);
+    }
+}
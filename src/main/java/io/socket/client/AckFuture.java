@@ -0,0 +1,183 @@
+package io.socket.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The pending acknowledgement of an event emitted with {@link Socket#emitWithAck(String, long, Object...)}.
+ *
+ * <p>The future completes with the arguments of the acknowledgement, or fails with a {@link TimeoutException} if the
+ * server does not answer in time, with a {@link SocketIOException} if the socket is disconnected first, or with an
+ * {@link IllegalStateException} if the event overflows the send buffer (see {@link BufferOverflowPolicy}).
+ * Cancelling the future discards the acknowledgement, and the event itself if it is still buffered.</p>
+ *
+ * <p>The listeners are run by the executor given to {@code emitWithAck}, or by the thread completing the future
+ * (usually the event thread) if there is none.</p>
+ */
+public final class AckFuture implements Future<Object[]> {
+
+    private static final Logger logger = Logger.getLogger(AckFuture.class.getName());
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final Executor executor;
+    private final FutureAck ack;
+    private volatile Object[] result;
+    private volatile Throwable failure;
+    private volatile Runnable canceller;
+    // guarded by this
+    private List<Runnable> listeners = new ArrayList<>();
+
+    /*package*/ AckFuture(long timeout, Executor executor) {
+        this.executor = executor;
+        this.ack = new FutureAck(timeout);
+    }
+
+    /**
+     * Runs the listener once the future is completed, failed or cancelled, or at once if it is already done.
+     *
+     * @param listener the listener.
+     * @return a reference to this object.
+     */
+    public AckFuture addListener(Runnable listener) {
+        synchronized (this) {
+            if (this.listeners != null) {
+                this.listeners.add(listener);
+                return this;
+            }
+        }
+        this.run(listener);
+        return this;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!this.finish(CANCELLED, null, null)) return false;
+        this.ack.cancelTimer();
+        Runnable canceller = this.canceller;
+        if (canceller != null) {
+            canceller.run();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return this.state.get() == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return this.state.get() != PENDING;
+    }
+
+    @Override
+    public Object[] get() throws InterruptedException, ExecutionException {
+        this.done.await();
+        return this.report();
+    }
+
+    @Override
+    public Object[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!this.done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return this.report();
+    }
+
+    /*package*/ Ack ack() {
+        return this.ack;
+    }
+
+    /*package*/ void onCancel(Runnable canceller) {
+        this.canceller = canceller;
+    }
+
+    /*package*/ void fail(Throwable failure) {
+        this.ack.cancelTimer();
+        this.finish(FAILED, null, failure);
+    }
+
+    private Object[] report() throws ExecutionException {
+        switch (this.state.get()) {
+            case SUCCEEDED:
+                return this.result;
+            case CANCELLED:
+                throw new CancellationException();
+            default:
+                throw new ExecutionException(this.failure);
+        }
+    }
+
+    private boolean finish(int state, Object[] result, Throwable failure) {
+        if (!this.state.compareAndSet(PENDING, state)) return false;
+        this.result = result;
+        this.failure = failure;
+        this.done.countDown();
+
+        List<Runnable> listeners;
+        synchronized (this) {
+            listeners = this.listeners;
+            this.listeners = null;
+        }
+        for (Runnable listener : listeners) {
+            this.run(listener);
+        }
+        return true;
+    }
+
+    private void run(Runnable listener) {
+        if (this.executor != null) {
+            this.executor.execute(listener);
+            return;
+        }
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "error in an ack future listener", e);
+        }
+    }
+
+    /**
+     * The acknowledgement registered on the socket, which completes the future.
+     */
+    /*package*/ final class FutureAck extends AckWithTimeout {
+
+        private final long timeout;
+
+        private FutureAck(long timeout) {
+            super(timeout);
+            this.timeout = timeout;
+        }
+
+        /*package*/ AckFuture future() {
+            return AckFuture.this;
+        }
+
+        @Override
+        public void onSuccess(Object... args) {
+            AckFuture.this.finish(SUCCEEDED, args, null);
+        }
+
+        @Override
+        public void onTimeout() {
+            AckFuture.this.finish(FAILED, null,
+                    new TimeoutException(String.format("no acknowledgement within %d ms", this.timeout)));
+        }
+    }
+}
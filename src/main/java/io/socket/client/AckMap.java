@@ -0,0 +1,241 @@
+package io.socket.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map of the pending acknowledgements of a socket, by packet id.
+ *
+ * <p>Open addressing with linear probing over primitive keys: since the ids are allocated in increasing order, the
+ * pending ids are mostly consecutive and land in distinct slots. Nothing is allocated by {@link #put(int, Ack)},
+ * {@link #get(int)} or {@link #remove(int)}, except when the table grows. Removals shift the following entries back
+ * instead of leaving tombstones, which only touches the entries displaced from their ideal slot.</p>
+ *
+ * <p>Each acknowledgement is kept with the time it was registered at and the statistics of its event, so that its
+ * latency is recorded without allocating either, and with its packet while the packet is buffered by the socket, so
+ * that a timeout removes it in constant time.</p>
+ *
+ * <p>Not thread-safe: only accessed from the event thread.</p>
+ */
+/*package*/ final class AckMap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    // a null value marks an empty slot
+    private Ack[] values;
+    private long[] times;
+    private AckStats[] stats;
+    private Socket.BufferedPacket[] buffered;
+    private int mask;
+    private int size;
+
+    /*package*/ AckMap() {
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    /*package*/ void put(int id, Ack ack) {
+        this.put(id, ack, 0, null);
+    }
+
+    /**
+     * @param id the packet id.
+     * @param ack the acknowledgement.
+     * @param time the registration time, from {@link System#nanoTime()}.
+     * @param stats the statistics of the event, or {@code null}.
+     */
+    /*package*/ void put(int id, Ack ack, long time, AckStats stats) {
+        if (ack == null) {
+            throw new NullPointerException("ack");
+        }
+        if (this.insert(id, ack, time, stats, null)) {
+            // keep the load factor under 0.5
+            if (++this.size > (this.mask + 1) >> 1) {
+                this.resize((this.mask + 1) << 1);
+            }
+        }
+    }
+
+    /*package*/ Ack get(int id) {
+        int index = this.indexOf(id);
+        return index >= 0 ? this.values[index] : null;
+    }
+
+    /*package*/ Ack remove(int id) {
+        int index = this.indexOf(id);
+        if (index < 0) return null;
+        Ack ack = this.values[index];
+        this.removeAt(index);
+        return ack;
+    }
+
+    /**
+     * @return the slot of the acknowledgement, or -1 if there is none. The slot is valid until the map is modified.
+     */
+    /*package*/ int indexOf(int id) {
+        int index = id & this.mask;
+        int distance = 0;
+        while (this.values[index] != null && this.distance(index) >= distance) {
+            if (this.keys[index] == id) {
+                return index;
+            }
+            index = (index + 1) & this.mask;
+            distance++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of slots: the entries are at the indexes below it whose {@link #ackAt(int)} is not null.
+     */
+    /*package*/ int capacity() {
+        return this.values.length;
+    }
+
+    /*package*/ Ack ackAt(int index) {
+        return this.values[index];
+    }
+
+    /*package*/ long timeAt(int index) {
+        return this.times[index];
+    }
+
+    /*package*/ AckStats statsAt(int index) {
+        return this.stats[index];
+    }
+
+    /*package*/ Socket.BufferedPacket bufferedAt(int index) {
+        return this.buffered[index];
+    }
+
+    /*package*/ void setBufferedAt(int index, Socket.BufferedPacket buffered) {
+        this.buffered[index] = buffered;
+    }
+
+    /*package*/ void removeAt(int index) {
+        this.values[index] = null;
+        this.stats[index] = null;
+        this.buffered[index] = null;
+        this.size--;
+        this.shiftBack(index);
+    }
+
+    /*package*/ int size() {
+        return this.size;
+    }
+
+    /*package*/ boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all the acknowledgements.
+     *
+     * @return the removed acknowledgements.
+     */
+    /*package*/ List<Ack> clear() {
+        List<Ack> acks = new ArrayList<>(this.size);
+        for (Ack ack : this.values) {
+            if (ack != null) {
+                acks.add(ack);
+            }
+        }
+        if (this.values.length > INITIAL_CAPACITY) {
+            this.allocate(INITIAL_CAPACITY);
+        } else {
+            Arrays.fill(this.values, null);
+            Arrays.fill(this.stats, null);
+            Arrays.fill(this.buffered, null);
+        }
+        this.size = 0;
+        return acks;
+    }
+
+    /**
+     * Inserts the entry, taking the slot of any entry closer to its ideal slot than the inserted one (Robin Hood
+     * hashing), so that the entries of a cluster stay ordered by ideal slot.
+     *
+     * @return whether the entry is a new one.
+     */
+    private boolean insert(int id, Ack ack, long time, AckStats stats, Socket.BufferedPacket buffered) {
+        int index = id & this.mask;
+        int distance = 0;
+        while (this.values[index] != null) {
+            if (this.keys[index] == id) {
+                this.set(index, id, ack, time, stats, buffered);
+                return false;
+            }
+            int existing = this.distance(index);
+            if (existing < distance) {
+                int displacedId = this.keys[index];
+                Ack displacedAck = this.values[index];
+                long displacedTime = this.times[index];
+                AckStats displacedStats = this.stats[index];
+                Socket.BufferedPacket displacedBuffered = this.buffered[index];
+                this.set(index, id, ack, time, stats, buffered);
+                id = displacedId;
+                ack = displacedAck;
+                time = displacedTime;
+                stats = displacedStats;
+                buffered = displacedBuffered;
+                distance = existing;
+            }
+            index = (index + 1) & this.mask;
+            distance++;
+        }
+        this.set(index, id, ack, time, stats, buffered);
+        return true;
+    }
+
+    private void set(int index, int id, Ack ack, long time, AckStats stats, Socket.BufferedPacket buffered) {
+        this.keys[index] = id;
+        this.values[index] = ack;
+        this.times[index] = time;
+        this.stats[index] = stats;
+        this.buffered[index] = buffered;
+    }
+
+    /**
+     * Moves back the entries following a removed one, up to the first one which is already at its ideal slot.
+     */
+    private void shiftBack(int free) {
+        int index = (free + 1) & this.mask;
+        while (this.values[index] != null && this.distance(index) > 0) {
+            this.set(free, this.keys[index], this.values[index], this.times[index], this.stats[index],
+                    this.buffered[index]);
+            this.values[index] = null;
+            this.stats[index] = null;
+            this.buffered[index] = null;
+            free = index;
+            index = (index + 1) & this.mask;
+        }
+    }
+
+    private int distance(int index) {
+        return (index - this.keys[index]) & this.mask;
+    }
+
+    private void resize(int capacity) {
+        int[] keys = this.keys;
+        Ack[] values = this.values;
+        long[] times = this.times;
+        AckStats[] stats = this.stats;
+        Socket.BufferedPacket[] buffered = this.buffered;
+        this.allocate(capacity);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                this.insert(keys[i], values[i], times[i], stats[i], buffered[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new Ack[capacity];
+        this.times = new long[capacity];
+        this.stats = new AckStats[capacity];
+        this.buffered = new Socket.BufferedPacket[capacity];
+        this.mask = capacity - 1;
+    }
+}
@@ -0,0 +1,103 @@
+package io.socket.client;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the acknowledgements of an event: the latency between the registration of the acknowledgement,
+ * when the event is emitted, and its call upon the response of the server, and the number of acknowledgements which
+ * timed out or failed.
+ *
+ * <p>See {@link Socket#ackStats(String)} and {@link Manager#ackStats(String)}. The statistics are kept for the first
+ * {@link #MAX_EVENTS} event names, the acknowledgements of the other events being aggregated under
+ * {@link #OTHER_EVENTS}.</p>
+ */
+public final class AckStats {
+
+    /**
+     * The number of event names whose statistics are kept separately, by socket and by manager.
+     */
+    public static final int MAX_EVENTS = 256;
+
+    /**
+     * The key of the statistics of the events beyond the first {@link #MAX_EVENTS} names.
+     */
+    public static final String OTHER_EVENTS = "<other>";
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    // the statistics of the manager, which aggregate the ones of its sockets
+    private final AckStats parent;
+
+    /*package*/ AckStats(AckStats parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return the round-trip latencies of the acknowledgements.
+     */
+    public LatencyHistogram latency() {
+        return this.latency;
+    }
+
+    /**
+     * @return the number of acknowledgements which timed out.
+     */
+    public long timeouts() {
+        return this.timeouts.get();
+    }
+
+    /**
+     * @return the number of acknowledgements which failed before any response: pending upon a disconnection, or
+     *     whose event was discarded from a full send buffer.
+     */
+    public long failures() {
+        return this.failures.get();
+    }
+
+    /*package*/ void recordLatency(long nanos) {
+        this.latency.record(nanos);
+        if (this.parent != null) {
+            this.parent.recordLatency(nanos);
+        }
+    }
+
+    /*package*/ void recordTimeout() {
+        this.timeouts.incrementAndGet();
+        if (this.parent != null) {
+            this.parent.recordTimeout();
+        }
+    }
+
+    /*package*/ void recordFailure() {
+        this.failures.incrementAndGet();
+        if (this.parent != null) {
+            this.parent.recordFailure();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("latency={%s} timeouts=%d failures=%d", this.latency, this.timeouts(), this.failures());
+    }
+
+    /**
+     * @return the key of the statistics of the event: its name, unless {@link #MAX_EVENTS} other names are kept.
+     */
+    /*package*/ static String key(ConcurrentMap<String, AckStats> stats, String event) {
+        return stats.containsKey(event) || stats.size() < MAX_EVENTS ? event : OTHER_EVENTS;
+    }
+
+    /*package*/ static AckStats of(ConcurrentMap<String, AckStats> stats, String event, AckStats parent) {
+        AckStats current = stats.get(event);
+        if (current == null) {
+            AckStats created = new AckStats(parent);
+            current = stats.putIfAbsent(event, created);
+            if (current == null) {
+                current = created;
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,193 @@
+package io.socket.client;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashed wheel timer shared by the acknowledgements with a timeout.
+ *
+ * <p>A single daemon thread, started on the first timeout, advances the wheel every {@link #TICK_MS} milliseconds
+ * and runs the expired tasks. It parks once the wheel is empty, until the next timeout is scheduled. Scheduling and
+ * cancelling are O(1) and never block: new timeouts are handed to the thread through a lock-free queue, and a
+ * cancelled timeout is only flagged, then unlinked when its bucket is visited.</p>
+ */
+/*package*/ final class AckTimer {
+
+    private static final Logger logger = Logger.getLogger(AckTimer.class.getName());
+
+    /*package*/ static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 512;
+
+    /*package*/ static final AckTimer INSTANCE = new AckTimer();
+
+    private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+    private final Timeout[] wheel = new Timeout[WHEEL_SIZE];
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile long startTime;
+    private volatile Thread thread;
+    // whether the timer thread is parked, or about to be
+    private volatile boolean idle;
+    // only accessed from the timer thread
+    private long tick;
+    private int size;
+
+    /*package*/ AckTimer() {}
+
+    /**
+     * Runs the task on the timer thread once the delay has elapsed, unless the timeout is cancelled before.
+     */
+    /*package*/ Timeout schedule(Runnable task, long delay) {
+        this.start();
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)));
+        this.pending.add(timeout);
+        if (this.idle) {
+            LockSupport.unpark(this.thread);
+        }
+        return timeout;
+    }
+
+    /**
+     * @return whether the timer thread is parked, having no timeout to run.
+     */
+    /*package*/ boolean isIdle() {
+        return this.idle && this.pending.isEmpty();
+    }
+
+    private void start() {
+        if (this.started.get() || !this.started.compareAndSet(false, true)) return;
+
+        this.startTime = System.nanoTime();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                AckTimer.this.loop();
+            }
+        }, "socket.io-ack-timer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void loop() {
+        for (;;) {
+            if (this.size == 0) {
+                this.awaitTimeouts();
+            }
+
+            long deadline = this.startTime + (this.tick + 1) * this.tickNanos;
+            long sleep;
+            while ((sleep = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    // the timer is shared by all the sockets: keep going
+                }
+            }
+
+            this.transferPending();
+            this.expire(this.wheel[(int) (this.tick & (WHEEL_SIZE - 1))]);
+            this.tick++;
+        }
+    }
+
+    private void awaitTimeouts() {
+        this.idle = true;
+        // a timeout added before the flag was set is seen here, a later one unparks the thread
+        while (this.pending.isEmpty()) {
+            LockSupport.park(this);
+            // the timer is shared by all the sockets: keep going
+            Thread.interrupted();
+        }
+        this.idle = false;
+        // the wheel is empty: skip the ticks elapsed while parked
+        this.tick = Math.max(this.tick, (System.nanoTime() - this.startTime) / this.tickNanos);
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = this.pending.poll()) != null) {
+            if (timeout.state != Timeout.PENDING) continue;
+
+            long ticks = Math.max((timeout.deadline - this.startTime) / this.tickNanos, this.tick);
+            timeout.rounds = (ticks - this.tick) / WHEEL_SIZE;
+            int index = (int) (ticks & (WHEEL_SIZE - 1));
+            timeout.bucket = index;
+            timeout.next = this.wheel[index];
+            if (timeout.next != null) {
+                timeout.next.prev = timeout;
+            }
+            this.wheel[index] = timeout;
+            this.size++;
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.state != Timeout.PENDING) {
+                this.unlink(timeout);
+            } else if (timeout.rounds <= 0) {
+                this.unlink(timeout);
+                if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable t) {
+                        logger.log(Level.WARNING, "error while running an ack timeout", t);
+                    }
+                }
+            } else {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            this.wheel[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        this.size--;
+    }
+
+    /*package*/ static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state;
+        // only accessed from the timer thread
+        private long rounds;
+        private int bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return whether the task was prevented from running.
+         */
+        /*package*/ boolean cancel() {
+            return STATE.compareAndSet(this, PENDING, CANCELLED);
+        }
+    }
+}
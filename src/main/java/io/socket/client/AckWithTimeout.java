@@ -1,11 +1,16 @@
 package io.socket.client;
 
-import java.util.Timer;
 import java.util.TimerTask;
 
+/**
+ * An acknowledgement which fails if the server does not answer within the given delay.
+ *
+ * <p>The timeouts of all the acknowledgements are served by a single shared timer thread.</p>
+ */
 public abstract class AckWithTimeout implements Ack {
     private final long timeout;
-    private final Timer timer = new Timer();
+    private volatile AckTimer.Timeout scheduled;
+    private volatile boolean cancelled;
 
     /**
      *
@@ -17,16 +22,25 @@ public abstract class AckWithTimeout implements Ack {
 
     @Override
     public final void call(Object... args) {
-        this.timer.cancel();
+        this.cancelTimer();
         this.onSuccess(args);
     }
 
     public final void schedule(TimerTask task) {
-        this.timer.schedule(task, this.timeout);
+        if (this.cancelled) return;
+        this.scheduled = AckTimer.INSTANCE.schedule(task, this.timeout);
+        // cancelled in the meantime
+        if (this.cancelled) {
+            this.scheduled.cancel();
+        }
     }
 
     public final void cancelTimer() {
-        this.timer.cancel();
+        this.cancelled = true;
+        AckTimer.Timeout scheduled = this.scheduled;
+        if (scheduled != null) {
+            scheduled.cancel();
+        }
     }
 
     public abstract void onSuccess(Object... args);
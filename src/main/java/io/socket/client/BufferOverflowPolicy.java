@@ -0,0 +1,32 @@
+package io.socket.client;
+
+/**
+ * What a {@link Socket} does with an event emitted while it is disconnected, once its send buffer is full (see
+ * {@link Manager.Options#maxBufferedPackets} and {@link Manager.Options#maxBufferedBytes}).
+ *
+ * <p>A discarded event with an {@link AckWithTimeout} has its {@link AckWithTimeout#onTimeout()} called at once.</p>
+ */
+public enum BufferOverflowPolicy {
+
+    /**
+     * Discards the oldest buffered events to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discards the new event.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Throws an {@link IllegalStateException} from {@code emit}.
+     */
+    FAIL,
+
+    /**
+     * Blocks the emitting thread until the socket connects or room is made in the buffer, for at most
+     * {@link Manager.Options#bufferOverflowTimeout} milliseconds, then throws an {@link IllegalStateException}.
+     * Emits from the event thread cannot block and fail at once.
+     */
+    BLOCK
+}
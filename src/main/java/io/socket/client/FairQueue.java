@@ -0,0 +1,149 @@
+package io.socket.client;
+
+import io.socket.parser.Packet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue of the packets of several namespaces, served with deficit round-robin: each namespace with pending packets
+ * may write, in turn, up to {@link #QUANTUM} bytes times its weight, so that a namespace sending large or many packets
+ * does not delay the others. The packets of a given namespace are kept in order.
+ *
+ * <p>Only accessed from the event thread, except for the {@link Share} of each namespace.</p>
+ */
+/*package*/ final class FairQueue {
+
+    /*package*/ static final int QUANTUM = 8192;
+
+    private final ConcurrentMap<String, Share> shares;
+    private final Map<String, Flow> flows = new HashMap<>();
+    // the namespaces with pending packets, in round-robin order
+    private final ArrayDeque<Flow> active = new ArrayDeque<>();
+    private int size;
+
+    /*package*/ FairQueue(ConcurrentMap<String, Share> shares) {
+        this.shares = shares;
+    }
+
+    /*package*/ void add(Packet packet, long size) {
+        String nsp = packet.nsp != null ? packet.nsp : "/";
+        Flow flow = this.flows.get(nsp);
+        if (flow == null) {
+            flow = new Flow(share(this.shares, nsp));
+            this.flows.put(nsp, flow);
+        }
+        if (flow.entries.isEmpty()) {
+            this.active.add(flow);
+        }
+        flow.entries.add(new Entry(packet, size));
+        flow.share.depth.incrementAndGet();
+        this.size++;
+    }
+
+    /*package*/ Entry poll() {
+        Flow flow;
+        while ((flow = this.active.peek()) != null) {
+            Entry head = flow.entries.peek();
+            if (flow.deficit >= head.size) {
+                flow.entries.poll();
+                flow.deficit -= head.size;
+                flow.share.depth.decrementAndGet();
+                this.size--;
+                if (flow.entries.isEmpty()) {
+                    // an idle namespace does not accumulate credit
+                    this.active.poll();
+                    flow.deficit = 0;
+                }
+                return head;
+            }
+            // next turn
+            this.active.poll();
+            flow.deficit += (long) QUANTUM * Math.max(1, flow.share.weight);
+            this.active.add(flow);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the packets of a namespace.
+     *
+     * @return the removed entries, in order.
+     */
+    /*package*/ List<Entry> remove(String nsp) {
+        Flow flow = this.flows.get(nsp);
+        if (flow == null || flow.entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = new ArrayList<>(flow.entries);
+        flow.share.depth.addAndGet(-entries.size());
+        flow.entries.clear();
+        flow.deficit = 0;
+        this.active.remove(flow);
+        this.size -= entries.size();
+        return entries;
+    }
+
+    /*package*/ boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /*package*/ void clear() {
+        for (Flow flow : this.active) {
+            flow.share.depth.addAndGet(-flow.entries.size());
+            flow.entries.clear();
+            flow.deficit = 0;
+        }
+        this.active.clear();
+        this.size = 0;
+    }
+
+    /*package*/ static Share share(ConcurrentMap<String, Share> shares, String nsp) {
+        Share share = shares.get(nsp);
+        if (share == null) {
+            share = new Share();
+            Share previous = shares.putIfAbsent(nsp, share);
+            if (previous != null) {
+                share = previous;
+            }
+        }
+        return share;
+    }
+
+    /**
+     * The weight and the number of queued packets of a namespace, shared by the queues of all the priorities.
+     */
+    /*package*/ static final class Share {
+
+        /*package*/ volatile int weight = 1;
+        /*package*/ final AtomicInteger depth = new AtomicInteger();
+    }
+
+    /*package*/ static final class Entry {
+
+        /*package*/ final Packet packet;
+        /*package*/ final long size;
+
+        private Entry(Packet packet, long size) {
+            this.packet = packet;
+            this.size = size;
+        }
+    }
+
+    private static final class Flow {
+
+        private final Share share;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private long deficit;
+
+        private Flow(Share share) {
+            this.share = share;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.socket.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, in nanoseconds.
+ *
+ * <p>The values are counted in log-linear buckets, like HdrHistogram: each power of two is split into 32 buckets,
+ * so that any value is reported within about 3% of the recorded one, up to 2<sup>40</sup> ns (about 18 minutes;
+ * larger values are counted as such). Recording is lock-free and does not allocate, so it can be left on in
+ * production.</p>
+ *
+ * <p>The statistics are read without stopping the writers, so they may miss the values recorded meanwhile.</p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /*package*/ LatencyHistogram() {}
+
+    /*package*/ void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        this.counts.incrementAndGet(index(Math.min(nanos, MAX_VALUE)));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(nanos);
+        long max;
+        while (nanos > (max = this.max.get()) && !this.max.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    public long count() {
+        return this.count.get();
+    }
+
+    /**
+     * @return the largest recorded value, in nanoseconds.
+     */
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * @return the mean of the recorded values, in nanoseconds, or 0 if there is none.
+     */
+    public double mean() {
+        long count = this.count.get();
+        return count > 0 ? (double) this.sum.get() / count : 0;
+    }
+
+    /**
+     * Returns the value under which the given percentage of the recorded values fall, e.g.
+     * {@code valueAtPercentile(99)} for the p99 latency.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the value, in nanoseconds, or 0 if there is none.
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.counts.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.0fns p50=%dns p99=%dns max=%dns", this.count(), this.mean(),
+                this.valueAtPercentile(50), this.valueAtPercentile(99), this.max());
+    }
+
+    /*package*/ static int index(long value) {
+        if (value < SUB_BUCKETS << 1) {
+            return (int) value;
+        }
+        // the highest bits of the value, between SUB_BUCKETS and 2 * SUB_BUCKETS, select the bucket
+        int shift = 64 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /*package*/ static long highestValue(int index) {
+        if (index < SUB_BUCKETS << 1) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long mantissa = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -4,15 +4,18 @@ import io.socket.backo.Backoff;
 import io.socket.emitter.Emitter;
 import io.socket.parser.DecodingException;
 import io.socket.parser.IOParser;
+import io.socket.parser.JsonCodec;
+import io.socket.parser.OrgJsonCodec;
 import io.socket.parser.Packet;
 import io.socket.parser.Parser;
-import io.socket.thread.EventThread;
 import okhttp3.Call;
 import okhttp3.WebSocket;
 
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +43,11 @@ public class Manager extends Emitter {
     public static final String EVENT_PACKET = "packet";
     public static final String EVENT_ERROR = "error";
 
+    /**
+     * Called when the engine.io write buffer has been flushed.
+     */
+    public static final String EVENT_DRAIN = "drain";
+
     /**
      * Called on a successful reconnection.
      */
@@ -75,12 +83,47 @@ public class Manager extends Emitter {
     private final Backoff backoff;
     private long _timeout;
     private final URI uri;
-    private final List<Packet> packetBuffer = new ArrayList<>();
+    /**
+     * The packets waiting for the current encoding or for the engine to be drained, one queue per {@link Priority}.
+     */
+    private final ConcurrentMap<String, FairQueue.Share> shares = new ConcurrentHashMap<>();
+    private final FairQueue[] packetBuffer = newLanes(this.shares);
+    private int queuedPackets;
+    private boolean draining;
+    // whether the engine is closed once the held packets are written
+    private boolean closing;
     private final Queue<On.Handle> subs = new LinkedList<>();;
     private final Options opts;
+    private final long writeBatchBytes;
     /*package*/ io.socket.engineio.client.Socket engine;
     private final Parser.Encoder encoder;
     private final Parser.Decoder decoder;
+    /*package*/ final JsonCodec codec;
+    private final AtomicLong rejectedPackets = new AtomicLong();
+    private final ConcurrentMap<String, AckStats> ackStats = new ConcurrentHashMap<>();
+    private final AtomicLong badAcks = new AtomicLong();
+    private final OutboundRing outbound = new OutboundRing();
+    private final Parser.Encoder.Callback writeCallback = new Parser.Encoder.Callback() {
+        @Override
+        public void call(Object[] encodedPackets) {
+            Manager.this.write(encodedPackets);
+            Manager.this.encoding = false;
+            Manager.this.processPacketQueue();
+        }
+    };
+    /**
+     * Number of frames written to the engine since it was last drained. Only accessed from the event thread.
+     */
+    private int writeBacklog;
+    /**
+     * Size of the frames written to the engine since it was last drained, in bytes. Only written from the event
+     * thread.
+     */
+    private volatile long writeBacklogBytes;
+    /**
+     * Estimated size of the packets waiting for the current encoding, in bytes. Only written from the event thread.
+     */
+    private volatile long queuedBytes;
 
     /**
      * This HashMap can be accessed from outside of EventThread.
@@ -114,6 +157,7 @@ public class Manager extends Emitter {
             opts.callFactory = defaultCallFactory;
         }
         this.opts = opts;
+        this.writeBatchBytes = opts.writeBatchBytes > 0 ? opts.writeBatchBytes : Long.MAX_VALUE;
         this.reconnection(opts.reconnection);
         this.reconnectionAttempts(opts.reconnectionAttempts != 0 ? opts.reconnectionAttempts : Integer.MAX_VALUE);
         this.reconnectionDelay(opts.reconnectionDelay != 0 ? opts.reconnectionDelay : 1000);
@@ -127,8 +171,21 @@ public class Manager extends Emitter {
         this.readyState = ReadyState.CLOSED;
         this.uri = uri;
         this.encoding = false;
-        this.encoder = opts.encoder != null ? opts.encoder : new IOParser.Encoder();
-        this.decoder = opts.decoder != null ? opts.decoder : new IOParser.Decoder();
+        this.codec = opts.codec != null ? opts.codec : new OrgJsonCodec();
+        this.encoder = opts.encoder != null ? opts.encoder : new IOParser.Encoder(opts.codec);
+        if (opts.decoder != null) {
+            this.decoder = opts.decoder;
+        } else {
+            IOParser.Decoder.Options decoderOpts = new IOParser.Decoder.Options();
+            decoderOpts.codec = opts.codec;
+            decoderOpts.lazyEvents = opts.lazyEvents;
+            decoderOpts.byteBufferAttachments = opts.byteBufferAttachments;
+            decoderOpts.maxTextLength = opts.maxTextLength;
+            decoderOpts.maxAttachments = opts.maxAttachments;
+            decoderOpts.maxAttachmentBytes = opts.maxAttachmentBytes;
+            decoderOpts.maxJsonDepth = opts.maxJsonDepth;
+            this.decoder = new IOParser.Decoder(decoderOpts);
+        }
     }
 
     public boolean reconnection() {
@@ -193,11 +250,79 @@ public class Manager extends Emitter {
         return this._timeout;
     }
 
+    /**
+     * Returns the number of incoming packets that were dropped because they were invalid or exceeded the
+     * configured limits.
+     *
+     * @return the number of rejected packets.
+     */
+    public long rejectedPackets() {
+        return this.rejectedPackets.get();
+    }
+
+    /**
+     * Returns the statistics of the acknowledgements of an event, for all the sockets of this manager.
+     *
+     * @param event the event name.
+     * @return the statistics, or {@code null} if no event of this name was emitted with an acknowledgement.
+     * @see Socket#ackStats(String)
+     */
+    public AckStats ackStats(String event) {
+        return this.ackStats.get(event);
+    }
+
+    /**
+     * @return the statistics of the acknowledgements of all the sockets of this manager, by event name.
+     */
+    public Map<String, AckStats> ackStats() {
+        return Collections.unmodifiableMap(this.ackStats);
+    }
+
+    /**
+     * @return the number of acknowledgements received for no pending event, either unknown or late.
+     */
+    public long badAcks() {
+        return this.badAcks.get();
+    }
+
+    /*package*/ AckStats getOrCreateAckStats(String event) {
+        return AckStats.of(this.ackStats, AckStats.key(this.ackStats, event), null);
+    }
+
+    /*package*/ void badAck() {
+        this.badAcks.incrementAndGet();
+    }
+
     public Manager timeout(long v) {
         this._timeout = v;
         return this;
     }
 
+    /**
+     * Sets the share of the connection given to a namespace while several namespaces are writing: the packets of
+     * each priority are written in turn for each namespace, in proportion to their weight (1 by default).
+     *
+     * @param nsp the namespace.
+     * @param weight the weight of the namespace.
+     * @return a reference to this object.
+     */
+    public Manager weight(String nsp, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        FairQueue.share(this.shares, nsp).weight = weight;
+        return this;
+    }
+
+    /**
+     * @param nsp the namespace.
+     * @return the number of packets of the namespace held until the connection is drained.
+     */
+    public int queuedPackets(String nsp) {
+        FairQueue.Share share = this.shares.get(nsp);
+        return share != null ? share.depth.get() : 0;
+    }
+
     private void maybeReconnectOnOpen() {
         // Only try to reconnect if it's the first time we're connecting
         if (!this.reconnecting && this._reconnection && this.backoff.getAttempts() == 0) {
@@ -216,7 +341,7 @@ public class Manager extends Emitter {
      * @return a reference to this object.
      */
     public Manager open(final OpenCallback fn) {
-        EventThread.exec(new Runnable() {
+        this.exec(new Runnable() {
             @Override
             public void run() {
                 if (logger.isLoggable(Level.FINE)) {
@@ -280,7 +405,7 @@ public class Manager extends Emitter {
                 };
 
                 if (timeout == 0) {
-                    EventThread.exec(onTimeout);
+                    Manager.this.exec(onTimeout);
                     return;
                 } else if (Manager.this._timeout > 0) {
                     logger.fine(String.format("connection attempt will timeout after %d", timeout));
@@ -289,7 +414,7 @@ public class Manager extends Emitter {
                     timer.schedule(new TimerTask() {
                         @Override
                         public void run() {
-                            EventThread.exec(onTimeout);
+                            Manager.this.exec(onTimeout);
                         }
                     }, timeout);
 
@@ -330,6 +455,7 @@ public class Manager extends Emitter {
                         Manager.this.decoder.add((byte[]) data);
                     }
                 } catch (DecodingException e) {
+                    Manager.this.rejectedPackets.incrementAndGet();
                     logger.fine("error while decoding the packet: " + e.getMessage());
                 }
             }
@@ -340,6 +466,12 @@ public class Manager extends Emitter {
                 Manager.this.onerror((Exception)objects[0]);
             }
         }));
+        this.subs.add(On.on(socket, Engine.EVENT_DRAIN, new Listener() {
+            @Override
+            public void call(Object... objects) {
+                Manager.this.ondrain();
+            }
+        }));
         this.subs.add(On.on(socket, Engine.EVENT_CLOSE, new Listener() {
             @Override
             public void call(Object... objects) {
@@ -398,40 +530,145 @@ public class Manager extends Emitter {
         }
     }
 
+    /**
+     * Whether a volatile packet would wait in the engine write buffer, in which case it is dropped.
+     */
+    /*package*/ boolean isWriteBufferFull() {
+        return this.writeBacklog + this.queuedPackets > this.opts.volatileWriteThreshold;
+    }
+
+    /**
+     * The estimated size of the packets which are waiting to be encoded or to be sent by the engine, in bytes.
+     */
+    /*package*/ long bufferedAmount() {
+        return this.queuedBytes + this.writeBacklogBytes;
+    }
+
+    /**
+     * Runs a task of the manager or of one of its sockets on the event thread, in the order of submission.
+     */
+    /*package*/ void exec(Runnable task) {
+        this.outbound.exec(task);
+    }
+
     /*package*/ void packet(Packet packet) {
+        this.packet(packet, Priority.NORMAL);
+    }
+
+    /**
+     * Writes a packet. While the engine is busy writing the previous packets, the packets other than
+     * {@link Priority#CONTROL} are held until it is drained, and then written by priority.
+     */
+    /*package*/ void packet(Packet packet, Priority priority) {
         if (logger.isLoggable(Level.FINE)) {
             logger.fine(String.format("writing packet %s", packet));
         }
-        final Manager self = this;
 
-        if (!self.encoding) {
-            self.encoding = true;
-            this.encoder.encode(packet, new Parser.Encoder.Callback() {
-                @Override
-                public void call(Object[] encodedPackets) {
-                    for (Object packet : encodedPackets) {
-                        if (packet instanceof String) {
-                            self.engine.write((String)packet);
-                        } else if (packet instanceof byte[]) {
-                            self.engine.write((byte[])packet);
-                        }
-                    }
-                    self.encoding = false;
-                    self.processPacketQueue();
-                }
-            });
-        } else {
-            self.packetBuffer.add(packet);
+        if (packet.type == Parser.DISCONNECT && this.queuedPackets > 0) {
+            // the packets held for the namespace are not sent once it is disconnected
+            this.promote(packet.nsp != null ? packet.nsp : "/");
+        }
+
+        // the packets are held once the engine has a full batch to send, and then written by priority
+        if (this.encoding || (priority != Priority.CONTROL
+                && (this.queuedPackets > 0 || this.writeBacklogBytes >= this.writeBatchBytes))) {
+            long size = PacketSize.of(packet);
+            this.packetBuffer[priority.ordinal()].add(packet, size);
+            this.queuedPackets++;
+            this.queuedBytes += size;
+            return;
+        }
+        this.encoding = true;
+        this.encoder.encode(packet, this.writeCallback);
+    }
+
+    /**
+     * Writes the packets held for a namespace as {@link Priority#CONTROL} packets, in order.
+     */
+    private void promote(String nsp) {
+        List<FairQueue.Entry> held = new ArrayList<>();
+        for (FairQueue lane : this.packetBuffer) {
+            held.addAll(lane.remove(nsp));
+        }
+        for (FairQueue.Entry entry : held) {
+            this.queuedPackets--;
+            this.queuedBytes -= entry.size;
+        }
+        for (FairQueue.Entry entry : held) {
+            this.packet(entry.packet, Priority.CONTROL);
         }
     }
 
+    private void write(Object[] encodedPackets) {
+        long bytes = 0;
+        for (Object packet : encodedPackets) {
+            if (packet instanceof String) {
+                this.engine.write((String)packet);
+                bytes += ((String) packet).length();
+            } else if (packet instanceof byte[]) {
+                this.engine.write((byte[])packet);
+                bytes += ((byte[]) packet).length;
+            }
+        }
+        this.writeBacklog += encodedPackets.length;
+        this.writeBacklogBytes += bytes;
+    }
+
+    /**
+     * Encodes the queued packets in a loop, until the engine has {@link Options#writeBatchBytes} to send: the next
+     * packets wait for the engine to be drained, so that a packet of a higher priority queued meanwhile goes first.
+     * With an asynchronous encoder, the loop stops at the first pending encoding and is resumed by its callback.
+     */
     private void processPacketQueue() {
-        if (!this.packetBuffer.isEmpty() && !this.encoding) {
-            Packet pack = this.packetBuffer.remove(0);
-            this.packet(pack);
+        // the callback of a synchronous encoder is called from the loop below
+        if (this.draining) return;
+        this.draining = true;
+        try {
+            FairQueue.Entry queued;
+            while (!this.encoding && (this.closing || this.writeBacklogBytes < this.writeBatchBytes)
+                    && (queued = this.pollPacket()) != null) {
+                this.encoding = true;
+                this.encoder.encode(queued.packet, this.writeCallback);
+            }
+            if (this.closing && !this.encoding && this.queuedPackets == 0) {
+                this.closing = false;
+                // the engine sends what it was given before closing, but drops any later write
+                this.engine.close();
+            }
+        } finally {
+            this.draining = false;
         }
     }
 
+    /*package*/ void ondrain() {
+        this.writeBacklog = 0;
+        this.writeBacklogBytes = 0;
+        // the next batch of held packets, by priority
+        this.processPacketQueue();
+        this.emit(EVENT_DRAIN);
+    }
+
+    private FairQueue.Entry pollPacket() {
+        if (this.queuedPackets == 0) return null;
+        for (FairQueue lane : this.packetBuffer) {
+            FairQueue.Entry queued = lane.poll();
+            if (queued != null) {
+                this.queuedPackets--;
+                this.queuedBytes -= queued.size;
+                return queued;
+            }
+        }
+        return null;
+    }
+
+    private static FairQueue[] newLanes(ConcurrentMap<String, FairQueue.Share> shares) {
+        FairQueue[] lanes = new FairQueue[Priority.values().length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new FairQueue(shares);
+        }
+        return lanes;
+    }
+
     private void cleanup() {
         logger.fine("cleanup");
 
@@ -439,8 +676,16 @@ public class Manager extends Emitter {
         while ((sub = this.subs.poll()) != null) sub.destroy();
         this.decoder.onDecoded(null);
 
-        this.packetBuffer.clear();
+        for (FairQueue lane : this.packetBuffer) {
+            lane.clear();
+        }
+        this.queuedPackets = 0;
         this.encoding = false;
+        this.closing = false;
+        this.draining = false;
+        this.writeBacklog = 0;
+        this.writeBacklogBytes = 0;
+        this.queuedBytes = 0;
 
         this.decoder.destroy();
     }
@@ -457,7 +702,9 @@ public class Manager extends Emitter {
         this.backoff.reset();
         this.readyState = ReadyState.CLOSED;
         if (this.engine != null) {
-            this.engine.close();
+            // the held packets, such as the DISCONNECT packets of the sockets, are written first
+            this.closing = true;
+            this.processPacketQueue();
         }
     }
 
@@ -492,7 +739,7 @@ public class Manager extends Emitter {
             timer.schedule(new TimerTask() {
                 @Override
                 public void run() {
-                    EventThread.exec(new Runnable() {
+                    self.exec(new Runnable() {
                         @Override
                         public void run() {
                             if (self.skipReconnect) return;
@@ -562,6 +809,93 @@ public class Manager extends Emitter {
         public double randomizationFactor;
         public Parser.Encoder encoder;
         public Parser.Decoder decoder;
+
+        /**
+         * JSON codec used by the default encoder and decoder. Ignored when a custom encoder or decoder is set.
+         */
+        public JsonCodec codec;
+
+        /**
+         * Whether the default decoder exposes binary attachments as read-only {@link java.nio.ByteBuffer} views
+         * instead of byte arrays.
+         */
+        public boolean byteBufferAttachments;
+
+        /**
+         * Whether the default decoder parses the arguments of the incoming events on demand, so that an event with
+         * no listener is never parsed, and an event with only typed listeners is bound directly from the frame.
+         * When enabled, the data of the EVENT packets emitted by {@link Manager#EVENT_PACKET} is a
+         * {@link io.socket.parser.LazyPayload} instead of a {@link org.json.JSONArray}, and a malformed payload is only
+         * detected when the event is dispatched, where it is logged and dropped.
+         */
+        public boolean lazyEvents;
+
+        /**
+         * Maximum length of an incoming text frame, in characters. Zero means no limit.
+         */
+        public int maxTextLength;
+
+        /**
+         * Maximum number of binary attachments of an incoming packet. Zero means no limit.
+         */
+        public int maxAttachments;
+
+        /**
+         * Maximum total size of the binary attachments of an incoming packet, in bytes. Zero means no limit.
+         */
+        public long maxAttachmentBytes;
+
+        /**
+         * Maximum nesting depth of the JSON payload of an incoming packet. Zero means no limit.
+         */
+        public int maxJsonDepth;
+
+        /**
+         * Number of frames which may be waiting in the engine.io write buffer before volatile packets are dropped.
+         * Zero drops them as soon as a previous write is in progress.
+         */
+        public int volatileWriteThreshold;
+
+        /**
+         * Maximum number of events a socket buffers while disconnected. Zero means no limit.
+         */
+        public int maxBufferedPackets;
+
+        /**
+         * Maximum estimated size of the events a socket buffers while disconnected, in bytes. Zero means no limit.
+         */
+        public long maxBufferedBytes;
+
+        /**
+         * What a socket does with an event emitted while its send buffer is full.
+         */
+        public BufferOverflowPolicy bufferOverflowPolicy = BufferOverflowPolicy.DROP_OLDEST;
+
+        /**
+         * How long an emit waits for room in the send buffer with {@link BufferOverflowPolicy#BLOCK} (ms).
+         */
+        public long bufferOverflowTimeout = 5000;
+
+        /**
+         * Number of pending outgoing bytes above which a socket is no longer writable (see
+         * {@link Socket#isWritable()}).
+         */
+        public long writeHighWatermark = 1024 * 1024;
+
+        /**
+         * Number of pending outgoing bytes below which a socket which was not writable becomes writable again, and
+         * emits {@link Socket#EVENT_DRAIN}.
+         */
+        public long writeLowWatermark = 256 * 1024;
+
+        /**
+         * Size of the frames given to the engine at once, in bytes (one HTTP request with HTTP long-polling). Once
+         * it is reached, the next packets are held until the engine is drained, and then written by priority and in
+         * turn for each namespace, so that a packet of a higher priority, or of another namespace, does not wait
+         * behind a large backlog. A larger packet is still written alone. Zero means no limit: the packets are
+         * written as soon as they are encoded.
+         */
+        public long writeBatchBytes = 64 * 1024;
         public Map<String, String> auth;
 
         /**
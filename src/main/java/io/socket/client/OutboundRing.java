@@ -0,0 +1,156 @@
+package io.socket.client;
+
+import io.socket.thread.EventThread;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free multi-producer, single-consumer ring of the tasks submitted to a {@link Manager} by the application
+ * threads.
+ *
+ * <p>Producers claim a slot with a CAS on the tail, and the event thread drains the ring in batches: a single
+ * {@link EventThread} task is scheduled per batch, instead of one per task. Tasks submitted from the event thread
+ * are run immediately, like with {@link EventThread#exec(Runnable)}.</p>
+ *
+ * <p>When the ring is full, the producer does not wait for the event thread, which may itself be blocked: the task
+ * is added to an unbounded overflow queue, like the queue of {@link EventThread#nextTick(Runnable)}. The following
+ * tasks go to the overflow queue until it is empty, and the overflow queue is only run once the ring is empty, which
+ * keeps the tasks of a given thread in order.</p>
+ */
+/*package*/ final class OutboundRing {
+
+    /*package*/ static final int DEFAULT_CAPACITY = 1024;
+
+    private final int mask;
+    private final AtomicReferenceArray<Runnable> tasks;
+    // per-slot sequence: equal to the position when the slot is free, to position + 1 when it is filled
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final Queue<Runnable> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // only accessed from the event thread
+    private long head;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            OutboundRing.this.drain();
+        }
+    };
+
+    /*package*/ OutboundRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /*package*/ OutboundRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.mask = capacity - 1;
+        this.tasks = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Runs the task on the event thread, after the tasks previously submitted by the same thread.
+     */
+    /*package*/ void exec(Runnable task) {
+        if (EventThread.isCurrent()) {
+            task.run();
+            return;
+        }
+
+        if (!this.overflow.isEmpty() || !this.offer(task)) {
+            this.overflow.add(task);
+        }
+        if (this.scheduled.compareAndSet(false, true)) {
+            EventThread.nextTick(this.drain);
+        }
+    }
+
+    private boolean offer(Runnable task) {
+        long position;
+        int index;
+        for (;;) {
+            position = this.tail.get();
+            index = (int) position & this.mask;
+            long diff = this.sequences.get(index) - position;
+            if (diff == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) break;
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+        this.tasks.lazySet(index, task);
+        this.sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    private Runnable poll() {
+        int index = (int) this.head & this.mask;
+        if (this.sequences.get(index) != this.head + 1) {
+            return null;
+        }
+        Runnable task = this.tasks.get(index);
+        this.tasks.lazySet(index, null);
+        this.sequences.lazySet(index, this.head + this.mask + 1);
+        this.head++;
+        return task;
+    }
+
+    /*package*/ void drain() {
+        boolean done = false;
+        try {
+            for (;;) {
+                // one pass over the ring at most, so that incoming packets are not delayed by a busy producer
+                int budget = this.mask + 1;
+                Runnable task;
+                while (budget-- > 0 && (task = this.poll()) != null) {
+                    task.run();
+                }
+                if (budget < 0) {
+                    break;
+                }
+
+                if (!this.overflow.isEmpty()) {
+                    // a slot may be claimed but not published yet: its task goes first
+                    if (this.tail.get() != this.head) {
+                        break;
+                    }
+                    budget = this.mask + 1;
+                    while (budget-- > 0 && (task = this.overflow.poll()) != null) {
+                        task.run();
+                    }
+                    if (budget < 0) {
+                        break;
+                    }
+                    continue;
+                }
+
+                this.scheduled.set(false);
+                // a producer may have published after the last poll, but before the flag was cleared
+                if (this.isEmpty() || !this.scheduled.compareAndSet(false, true)) {
+                    done = true;
+                    return;
+                }
+            }
+        } finally {
+            // the remaining tasks are run in a new batch, even if a task has thrown
+            if (!done) {
+                EventThread.nextTick(this.drain);
+            }
+        }
+    }
+
+    /*package*/ boolean isEmpty() {
+        return this.sequences.get((int) this.head & this.mask) != this.head + 1 && this.overflow.isEmpty();
+    }
+}
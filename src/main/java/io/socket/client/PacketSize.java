@@ -0,0 +1,95 @@
+package io.socket.client;
+
+import io.socket.parser.Packet;
+import io.socket.parser.PreparedEvent;
+import io.socket.parser.TypedValue;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Estimates the size of a packet before it is encoded, in bytes: strings are counted as one byte per character and
+ * numbers as eight bytes. The estimate is only meant for the accounting of the buffered packets.
+ */
+/*package*/ final class PacketSize {
+
+    private static final int PACKET_OVERHEAD = 8;
+
+    private PacketSize() {}
+
+    /*package*/ static long of(Packet<?> packet) {
+        long size = PACKET_OVERHEAD;
+        if (packet.data instanceof PreparedEvent) {
+            // the body is already serialized
+            PreparedEvent event = (PreparedEvent) packet.data;
+            size += event.toString().length();
+            JSONArray data = event.data();
+            for (int i = 1; i < data.length(); i++) {
+                size += binarySize(data.opt(i));
+            }
+            return size;
+        }
+        return size + of(packet.data);
+    }
+
+    private static long of(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return 4;
+        } else if (value instanceof String) {
+            return ((String) value).length() + 2;
+        } else if (value instanceof Number) {
+            return 8;
+        } else if (value instanceof Boolean) {
+            return 5;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof ByteBuffer) {
+            return ((ByteBuffer) value).remaining();
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            long size = 2 + array.length();
+            for (int i = 0; i < array.length(); i++) {
+                size += of(array.opt(i));
+            }
+            return size;
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            long size = 2;
+            Iterator<?> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                size += key.length() + 4 + of(object.opt(key));
+            }
+            return size;
+        } else if (value instanceof TypedValue) {
+            return ((TypedValue) value).estimatedSize();
+        }
+        return String.valueOf(value).length();
+    }
+
+    private static long binarySize(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof ByteBuffer) {
+            return ((ByteBuffer) value).remaining();
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            long size = 0;
+            for (int i = 0; i < array.length(); i++) {
+                size += binarySize(array.opt(i));
+            }
+            return size;
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            long size = 0;
+            Iterator<?> keys = object.keys();
+            while (keys.hasNext()) {
+                size += binarySize(object.opt((String) keys.next()));
+            }
+            return size;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,30 @@
+package io.socket.client;
+
+/**
+ * The priority of an outgoing packet. When the connection is busy, the {@link Manager} holds the outgoing packets
+ * and writes them by decreasing priority once the connection is drained, keeping the order of the packets of a given
+ * priority.
+ */
+public enum Priority {
+
+    /**
+     * The connection to and the disconnection from a namespace. Also suits small events which must not wait behind
+     * others.
+     */
+    CONTROL,
+
+    /**
+     * The acknowledgements sent to the server.
+     */
+    ACK,
+
+    /**
+     * The default priority of the events.
+     */
+    NORMAL,
+
+    /**
+     * Large transfers, which may be delayed by the other packets.
+     */
+    BULK
+}
@@ -1,8 +1,13 @@
 package io.socket.client;
 
 import io.socket.emitter.Emitter;
+import io.socket.parser.DecodingException;
+import io.socket.parser.JsonCodec;
+import io.socket.parser.LazyPayload;
 import io.socket.parser.Packet;
 import io.socket.parser.Parser;
+import io.socket.parser.PreparedEvent;
+import io.socket.parser.TypedValue;
 import io.socket.thread.EventThread;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -11,6 +16,11 @@ import org.json.JSONObject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +31,8 @@ public class Socket extends Emitter {
 
     private static final Logger logger = Logger.getLogger(Socket.class.getName());
 
+    private static final int TOMBSTONE_COMPACTION_THRESHOLD = 1024;
+
     /**
      * Called on a connection.
      */
@@ -41,12 +53,20 @@ public class Socket extends Emitter {
      */
     public static final String EVENT_CONNECT_ERROR = "connect_error";
 
+    /**
+     * Called when the outgoing backlog of a socket which was not writable falls below the low watermark (see
+     * {@link #isWritable()}).
+     */
+    public static final String EVENT_DRAIN = "drain";
+
     static final String EVENT_MESSAGE = "message";
 
     protected static Map<String, Integer> RESERVED_EVENTS = new HashMap<String, Integer>() {{
         put(EVENT_CONNECT, 1);
         put(EVENT_CONNECT_ERROR, 1);
         put(EVENT_DISCONNECT, 1);
+        // emitted locally, but not reserved on the server-side
+        put(EVENT_DRAIN, 1);
         // used on the server-side
         put("disconnecting", 1);
         put("newListener", 1);
@@ -56,22 +76,53 @@ public class Socket extends Emitter {
     /*package*/ String id;
 
     private volatile boolean connected;
+    private volatile boolean writable = true;
     private int ids;
+    private int corked;
     private final String nsp;
     private final Manager io;
     private final Map<String, String> auth;
-    private final Map<Integer, Ack> acks = new ConcurrentHashMap<>();
+    // only accessed from the event thread
+    private final AckMap acks = new AckMap();
     private Queue<On.Handle> subs;
     private final Queue<List<Object>> receiveBuffer = new ConcurrentLinkedQueue<>();
-    private final Queue<Packet<JSONArray>> sendBuffer = new ConcurrentLinkedQueue<>();
+    private final Queue<BufferedPacket> sendBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sendBufferSize = new AtomicInteger();
+    private final AtomicLong sendBufferBytes = new AtomicLong();
+    private final AtomicLong overflowedEvents = new AtomicLong();
+    private final Object sendBufferLock = new Object();
+    // removed packets still in the send buffer, skipped when it is drained
+    private int bufferTombstones;
+    private final int maxBufferedPackets;
+    private final long maxBufferedBytes;
+    private final BufferOverflowPolicy overflowPolicy;
+    private final long overflowTimeout;
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final AtomicLong droppedVolatileEvents = new AtomicLong();
+    private final ConcurrentMap<String, AckStats> ackStats = new ConcurrentHashMap<>();
+    private final AtomicLong badAcks = new AtomicLong();
+    private final Volatile volatileView = new Volatile();
+    private final List<BufferedPacket> corkBuffer = new ArrayList<>();
 
     private final ConcurrentLinkedQueue<Listener> onAnyIncomingListeners = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<Listener> onAnyOutgoingListeners = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, ConcurrentLinkedQueue<TypedHandler<?>>> typedListeners = new ConcurrentHashMap<>();
 
     public Socket(Manager io, String nsp, Manager.Options opts) {
+        if (opts == null) {
+            opts = new Manager.Options();
+        }
         this.io = io;
         this.nsp = nsp;
-        this.auth = opts != null ? opts.auth : null;
+        this.auth = opts.auth;
+        this.maxBufferedPackets = opts.maxBufferedPackets;
+        this.maxBufferedBytes = opts.maxBufferedBytes;
+        this.overflowPolicy = opts.bufferOverflowPolicy != null
+                ? opts.bufferOverflowPolicy : BufferOverflowPolicy.DROP_OLDEST;
+        this.overflowTimeout = opts.bufferOverflowTimeout;
+        this.highWatermark = opts.writeHighWatermark;
+        this.lowWatermark = Math.min(opts.writeLowWatermark, opts.writeHighWatermark);
     }
 
     private void subEvents() {
@@ -99,6 +150,12 @@ public class Socket extends Emitter {
                     }
                 }
             }));
+            add(On.on(io, Manager.EVENT_DRAIN, new Listener() {
+                @Override
+                public void call(Object... args) {
+                    Socket.this.updateWritable();
+                }
+            }));
             add(On.on(io, Manager.EVENT_CLOSE, new Listener() {
                 @Override
                 public void call(Object... args) {
@@ -116,7 +173,7 @@ public class Socket extends Emitter {
      * Connects the socket.
      */
     public Socket open() {
-        EventThread.exec(new Runnable() {
+        this.io.exec(new Runnable() {
             @Override
             public void run() {
                 if (Socket.this.connected || Socket.this.io.isReconnecting()) return;
@@ -143,12 +200,7 @@ public class Socket extends Emitter {
      * @return a reference to this object.
      */
     public Socket send(final Object... args) {
-        EventThread.exec(new Runnable() {
-            @Override
-            public void run() {
-                Socket.this.emit(EVENT_MESSAGE, args);
-            }
-        });
+        this.emit(EVENT_MESSAGE, args);
         return this;
     }
 
@@ -161,57 +213,288 @@ public class Socket extends Emitter {
      */
     @Override
     public Emitter emit(final String event, final Object... args) {
+        this.emitEvent(event, args, false, Priority.NORMAL);
+        return this;
+    }
+
+    /**
+     * Emits an event with an acknowledge.
+     *
+     * @param event an event name
+     * @param args data to send.
+     * @param ack the acknowledgement to be called
+     * @return a reference to this object.
+     */
+    public Emitter emit(final String event, final Object[] args, final Ack ack) {
+        this.emitPacket(this.eventPacket(event, args), ack, false, Priority.NORMAL);
+        return this;
+    }
+
+    /**
+     * Emits an event prepared for many sockets.
+     *
+     * @param event the prepared event.
+     * @return a reference to this object.
+     */
+    public Socket emit(PreparedEvent event) {
+        return this.emit(event, null);
+    }
+
+    /**
+     * Emits an event prepared for many sockets, with an acknowledge.
+     *
+     * @param event the prepared event.
+     * @param ack the acknowledgement to be called
+     * @return a reference to this object.
+     */
+    public Socket emit(PreparedEvent event, Ack ack) {
+        this.emitPrepared(event, ack, false, Priority.NORMAL);
+        return this;
+    }
+
+    /**
+     * Emits an event and returns the future acknowledgement of the server:
+     *
+     * <pre>
+     * Object[] response = socket.emitWithAck("fetch", 5000, id).get();
+     * </pre>
+     *
+     * <p>Unlike {@link #emit(String, Object...)}, this method does not throw when the send buffer is full: the
+     * future fails with an {@link IllegalStateException} instead.</p>
+     *
+     * @param event an event name.
+     * @param timeout how long to wait for the acknowledgement, in milliseconds.
+     * @param args data to send.
+     * @return the pending acknowledgement.
+     */
+    public AckFuture emitWithAck(String event, long timeout, Object... args) {
+        return this.emitWithAck(event, timeout, null, args);
+    }
+
+    /**
+     * Emits an event and returns the future acknowledgement of the server, whose listeners are run by the given
+     * executor instead of the event thread.
+     *
+     * @param event an event name.
+     * @param timeout how long to wait for the acknowledgement, in milliseconds.
+     * @param executor the executor running the listeners of the future, or {@code null}.
+     * @param args data to send.
+     * @return the pending acknowledgement.
+     */
+    public AckFuture emitWithAck(String event, long timeout, Executor executor, Object... args) {
         if (RESERVED_EVENTS.containsKey(event)) {
             throw new RuntimeException("'" + event + "' is a reserved event name");
         }
 
-        EventThread.exec(new Runnable() {
+        final AckFuture future = new AckFuture(timeout, executor);
+        final Packet<JSONArray> packet = this.eventPacket(event, args);
+        future.onCancel(new Runnable() {
             @Override
             public void run() {
-                Ack ack;
-                Object[] _args;
-                int lastIndex = args.length - 1;
-
-                if (args.length > 0 && args[lastIndex] instanceof Ack) {
-                    _args = new Object[lastIndex];
-                    for (int i = 0; i < lastIndex; i++) {
-                        _args[i] = args[i];
+                Socket.this.io.exec(new Runnable() {
+                    @Override
+                    public void run() {
+                        // the id is set once the packet is emitted, which precedes this task
+                        if (packet.id < 0) return;
+                        int index = Socket.this.acks.indexOf(packet.id);
+                        if (index < 0) return;
+                        BufferedPacket buffered = Socket.this.acks.bufferedAt(index);
+                        Socket.this.acks.removeAt(index);
+                        Socket.this.removeBuffered(buffered);
                     }
-                    ack = (Ack) args[lastIndex];
-                } else {
-                    _args = args;
-                    ack = null;
-                }
-
-                emit(event, _args, ack);
+                });
             }
         });
-        return this;
+        try {
+            this.emitPacket(packet, future.ack(), false, Priority.NORMAL);
+        } catch (IllegalStateException e) {
+            // the send buffer is full, with the FAIL or BLOCK policy
+            future.fail(e);
+        }
+        return future;
     }
 
     /**
-     * Emits an event with an acknowledge.
+     * Returns a view of this socket whose events have the given priority. When the connection is busy, the
+     * outgoing packets are written by decreasing priority, so that, for example, small events are not delayed by a
+     * large transfer:
      *
-     * @param event an event name
-     * @param args data to send.
-     * @param ack the acknowledgement to be called
-     * @return a reference to this object.
+     * <pre>
+     * socket.withPriority(Priority.BULK).emit("upload", chunk);
+     * </pre>
+     *
+     * <p>The events are sent with {@link Priority#NORMAL} by default, and the acknowledgements with
+     * {@link Priority#ACK}.</p>
+     *
+     * @param priority the priority of the events.
+     * @return the view of this socket.
      */
-    public Emitter emit(final String event, final Object[] args, final Ack ack) {
-        EventThread.exec(new Runnable() {
+    public Flagged withPriority(Priority priority) {
+        return new Flagged(priority);
+    }
+
+    /**
+     * Returns a view of this socket whose events are dropped instead of being buffered when the socket is not
+     * connected, or when the connection is busy writing previous packets (see
+     * {@link Manager.Options#volatileWriteThreshold}). This is the equivalent of the {@code volatile} flag of the
+     * JavaScript client, for data which is only relevant when sent immediately.
+     *
+     * @return the volatile view of this socket.
+     */
+    public Volatile asVolatile() {
+        return this.volatileView;
+    }
+
+    /**
+     * @return the number of volatile events dropped by this socket.
+     */
+    public long droppedVolatileEvents() {
+        return this.droppedVolatileEvents.get();
+    }
+
+    /**
+     * @return the number of events buffered while the socket is disconnected.
+     */
+    public int sendBufferSize() {
+        return this.sendBufferSize.get();
+    }
+
+    /**
+     * @return the estimated size of the events buffered while the socket is disconnected, in bytes.
+     */
+    public long sendBufferBytes() {
+        return this.sendBufferBytes.get();
+    }
+
+    /**
+     * @return the number of events discarded or rejected because the send buffer was full.
+     */
+    public long overflowedEvents() {
+        return this.overflowedEvents.get();
+    }
+
+    /**
+     * Returns the statistics of the acknowledgements of an event emitted by this socket: the latency between the
+     * emission of the event and the call of its acknowledgement, and the number of timeouts.
+     *
+     * @param event the event name.
+     * @return the statistics, or {@code null} if no event of this name was emitted with an acknowledgement.
+     */
+    public AckStats ackStats(String event) {
+        return this.ackStats.get(event);
+    }
+
+    /**
+     * @return the statistics of the acknowledgements of this socket, by event name.
+     */
+    public Map<String, AckStats> ackStats() {
+        return Collections.unmodifiableMap(this.ackStats);
+    }
+
+    /**
+     * @return the number of acknowledgements received for no pending event, either unknown or late.
+     */
+    public long badAcks() {
+        return this.badAcks.get();
+    }
+
+    /**
+     * Returns the estimated size of the outgoing data which is not sent yet: the events buffered by this socket
+     * while disconnected, and the packets waiting in the shared connection.
+     *
+     * @return the pending size, in bytes.
+     */
+    public long bufferedAmount() {
+        return this.sendBufferBytes.get() + this.io.bufferedAmount();
+    }
+
+    /**
+     * Whether the application should keep emitting. The socket is no longer writable once
+     * {@link #bufferedAmount()} exceeds {@link Manager.Options#writeHighWatermark}, and becomes writable again,
+     * emitting {@link #EVENT_DRAIN}, once it falls below {@link Manager.Options#writeLowWatermark}.
+     *
+     * @return whether the socket is writable.
+     */
+    public boolean isWritable() {
+        return this.writable;
+    }
+
+    private void updateWritable() {
+        long amount = this.bufferedAmount();
+        if (this.writable) {
+            if (amount > this.highWatermark) {
+                this.writable = false;
+            }
+        } else if (amount <= this.lowWatermark) {
+            this.writable = true;
+            super.emit(EVENT_DRAIN);
+        }
+    }
+
+    private void emitEvent(String event, Object[] args, boolean isVolatile, Priority priority) {
+        if (RESERVED_EVENTS.containsKey(event)) {
+            throw new RuntimeException("'" + event + "' is a reserved event name");
+        }
+
+        Ack ack;
+        Object[] _args;
+        int lastIndex = args.length - 1;
+
+        if (args.length > 0 && args[lastIndex] instanceof Ack) {
+            _args = new Object[lastIndex];
+            for (int i = 0; i < lastIndex; i++) {
+                _args[i] = args[i];
+            }
+            ack = (Ack) args[lastIndex];
+        } else {
+            _args = args;
+            ack = null;
+        }
+
+        this.emitPacket(this.eventPacket(event, _args), ack, isVolatile, priority);
+    }
+
+    private void emitPrepared(PreparedEvent event, Ack ack, boolean isVolatile, Priority priority) {
+        if (RESERVED_EVENTS.containsKey(event.event())) {
+            throw new RuntimeException("'" + event.event() + "' is a reserved event name");
+        }
+        this.emitPacket(new Packet<>(Parser.EVENT, event), ack, isVolatile, priority);
+    }
+
+    private Packet<JSONArray> eventPacket(String event, Object[] args) {
+        // the payload is built by the calling thread, only the ack registration needs the event thread
+        JSONArray jsonArgs = new JSONArray();
+        jsonArgs.put(event);
+
+        if (args != null) {
+            for (Object arg : args) {
+                jsonArgs.put(arg);
+            }
+        }
+        return new Packet<>(Parser.EVENT, jsonArgs);
+    }
+
+    private void emitPacket(final Packet<?> packet, final Ack ack, final boolean isVolatile, final Priority priority) {
+        long size = -1;
+        if (!isVolatile && !this.connected && this.isBufferBounded()
+                && (this.overflowPolicy == BufferOverflowPolicy.FAIL || this.overflowPolicy == BufferOverflowPolicy.BLOCK)) {
+            // the caller is the one to fail or to wait, not the event thread
+            size = PacketSize.of(packet);
+            this.awaitBufferRoom(size);
+        }
+        final long estimate = size;
+
+        this.io.exec(new Runnable() {
             @Override
             public void run() {
-                JSONArray jsonArgs = new JSONArray();
-                jsonArgs.put(event);
-
-                if (args != null) {
-                    for (Object arg : args) {
-                        jsonArgs.put(arg);
+                if (isVolatile && (!Socket.this.connected || Socket.this.io.isWriteBufferFull())) {
+                    Socket.this.droppedVolatileEvents.incrementAndGet();
+                    if (logger.isLoggable(Level.FINE)) {
+                        logger.fine(String.format("discarding volatile packet %s", packet));
                     }
+                    return;
                 }
 
-                Packet<JSONArray> packet = new Packet<>(Parser.EVENT, jsonArgs);
-
                 if (ack != null) {
                     final int ackId = Socket.this.ids;
 
@@ -222,56 +505,349 @@ public class Socket extends Emitter {
                         ackWithTimeout.schedule(new TimerTask() {
                             @Override
                             public void run() {
-                                // remove the ack from the map (to prevent an actual acknowledgement)
-                                acks.remove(ackId);
-
-                                // remove the packet from the buffer (if applicable)
-                                Iterator<Packet<JSONArray>> iterator = sendBuffer.iterator();
-                                while (iterator.hasNext()) {
-                                    if (iterator.next().id == ackId) {
-                                        iterator.remove();
+                                Socket.this.io.exec(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        // remove the ack from the map (to prevent an actual acknowledgement)
+                                        int index = acks.indexOf(ackId);
+                                        if (index < 0) return;
+                                        AckStats stats = acks.statsAt(index);
+                                        BufferedPacket buffered = acks.bufferedAt(index);
+                                        acks.removeAt(index);
+                                        if (stats != null) {
+                                            stats.recordTimeout();
+                                        }
+
+                                        // remove the packet from the buffer (if applicable)
+                                        Socket.this.removeBuffered(buffered);
+
+                                        ackWithTimeout.onTimeout();
                                     }
-                                }
-
-                                ackWithTimeout.onTimeout();
+                                });
                             }
                         });
                     }
 
-                    Socket.this.acks.put(ackId, ack);
+                    Socket.this.acks.put(ackId, ack, System.nanoTime(), Socket.this.ackStats(packet));
                     packet.id = ids++;
                 }
 
                 if (Socket.this.connected) {
-                    Socket.this.packet(packet);
+                    Socket.this.packet(packet, priority);
                 } else {
-                    Socket.this.sendBuffer.add(packet);
+                    Socket.this.buffer(packet, estimate >= 0 ? estimate : PacketSize.of(packet), priority);
+                }
+                Socket.this.updateWritable();
+            }
+        });
+    }
+
+    // the statistics of the acknowledgements of the event of the packet
+    private AckStats ackStats(Packet<?> packet) {
+        String event = packet.data instanceof PreparedEvent ? ((PreparedEvent) packet.data).event()
+                : ((JSONArray) packet.data).optString(0);
+        String key = AckStats.key(this.ackStats, event);
+        return AckStats.of(this.ackStats, key, this.io.getOrCreateAckStats(key));
+    }
+
+    /**
+     * Removes a buffered packet, if any. The packet is only marked as removed, and skipped when the buffer is drained.
+     */
+    private void removeBuffered(BufferedPacket buffered) {
+        if (buffered == null) return;
+
+        buffered.removed = true;
+        this.released(buffered);
+        // do not let the tombstones of a long offline period pile up
+        if (++this.bufferTombstones > TOMBSTONE_COMPACTION_THRESHOLD && this.bufferTombstones > this.sendBufferSize.get()) {
+            Iterator<BufferedPacket> it = this.sendBuffer.iterator();
+            while (it.hasNext()) {
+                if (it.next().removed) {
+                    it.remove();
+                }
+            }
+            this.bufferTombstones = 0;
+        }
+    }
+
+    /**
+     * Retrieves and removes the oldest buffered packet, skipping the removed ones.
+     */
+    private BufferedPacket pollBuffered() {
+        BufferedPacket buffered;
+        while ((buffered = this.sendBuffer.poll()) != null) {
+            if (buffered.removed) {
+                this.bufferTombstones--;
+                continue;
+            }
+            if (buffered.packet.id >= 0) {
+                // the packet is no longer buffered once its ack times out
+                int index = this.acks.indexOf(buffered.packet.id);
+                if (index >= 0) {
+                    this.acks.setBufferedAt(index, null);
+                }
+            }
+            return buffered;
+        }
+        return null;
+    }
+
+    private boolean isBufferBounded() {
+        return this.maxBufferedPackets > 0 || this.maxBufferedBytes > 0;
+    }
+
+    private boolean isBufferFull(long size) {
+        return (this.maxBufferedPackets > 0 && this.sendBufferSize.get() >= this.maxBufferedPackets)
+                || (this.maxBufferedBytes > 0 && this.sendBufferBytes.get() + size > this.maxBufferedBytes);
+    }
+
+    private void awaitBufferRoom(long size) {
+        if (!this.isBufferFull(size)) return;
+
+        if (this.overflowPolicy == BufferOverflowPolicy.BLOCK && !EventThread.isCurrent()) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.overflowTimeout);
+            synchronized (this.sendBufferLock) {
+                while (!this.connected && this.isBufferFull(size)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this.sendBufferLock, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (this.connected || !this.isBufferFull(size)) return;
+            }
+        }
+
+        this.overflowedEvents.incrementAndGet();
+        throw new IllegalStateException("send buffer is full");
+    }
+
+    private void buffer(Packet<?> packet, long size, Priority priority) {
+        if (this.overflowPolicy == BufferOverflowPolicy.DROP_OLDEST) {
+            BufferedPacket oldest;
+            while (this.isBufferFull(size) && (oldest = this.pollBuffered()) != null) {
+                this.released(oldest);
+                this.discard(oldest.packet);
+            }
+        }
+        // with FAIL or BLOCK, the buffer may have been filled since the caller checked it
+        if (this.isBufferFull(size)) {
+            this.discard(packet);
+            return;
+        }
+
+        BufferedPacket buffered = new BufferedPacket(packet, size, priority);
+        this.sendBuffer.add(buffered);
+        if (packet.id >= 0) {
+            // indexed by its ack, so that a timeout removes it in constant time
+            int index = this.acks.indexOf(packet.id);
+            if (index >= 0) {
+                this.acks.setBufferedAt(index, buffered);
+            }
+        }
+        this.sendBufferSize.incrementAndGet();
+        this.sendBufferBytes.addAndGet(size);
+    }
+
+    private void discard(Packet<?> packet) {
+        this.overflowedEvents.incrementAndGet();
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine(String.format("send buffer is full - discarding packet %s", packet));
+        }
+        int index = packet.id >= 0 ? this.acks.indexOf(packet.id) : -1;
+        if (index >= 0) {
+            Ack ack = this.acks.ackAt(index);
+            AckStats stats = this.acks.statsAt(index);
+            this.acks.removeAt(index);
+            if (stats != null) {
+                stats.recordFailure();
+            }
+            if (ack instanceof AckFuture.FutureAck) {
+                ((AckFuture.FutureAck) ack).future().fail(new IllegalStateException("send buffer is full"));
+            } else if (ack instanceof AckWithTimeout) {
+                ((AckWithTimeout) ack).cancelTimer();
+                ((AckWithTimeout) ack).onTimeout();
+            }
+        }
+    }
+
+    private void released(BufferedPacket buffered) {
+        this.sendBufferSize.decrementAndGet();
+        this.sendBufferBytes.addAndGet(-buffered.size);
+        this.signalBufferRoom();
+    }
+
+    private void signalBufferRoom() {
+        if (this.overflowPolicy == BufferOverflowPolicy.BLOCK) {
+            synchronized (this.sendBufferLock) {
+                this.sendBufferLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Listens on an event, binding its first argument to the given type.
+     *
+     * <p>When an event only has typed listeners, its first argument is parsed directly from the frame, and the
+     * rest of the payload is never parsed. The fields of the type are bound by name. To send such an object,
+     * wrap it with {@link TypedValue#of(Object, Class)}:</p>
+     *
+     * <pre>
+     * socket.on("position", Position.class, new TypedListener&lt;Position&gt;() { ... });
+     * socket.emit("position", TypedValue.of(position, Position.class));
+     * </pre>
+     *
+     * @param event an event name.
+     * @param type the type of the first argument.
+     * @param fn the listener.
+     * @return a reference to this object.
+     */
+    public <T> Socket on(String event, Class<T> type, TypedListener<T> fn) {
+        ConcurrentLinkedQueue<TypedHandler<?>> handlers = this.typedListeners.get(event);
+        if (handlers == null) {
+            handlers = new ConcurrentLinkedQueue<>();
+            ConcurrentLinkedQueue<TypedHandler<?>> previous = this.typedListeners.putIfAbsent(event, handlers);
+            if (previous != null) {
+                handlers = previous;
+            }
+        }
+        handlers.add(new TypedHandler<>(type, fn));
+        return this;
+    }
+
+    /**
+     * Removes the typed listener.
+     *
+     * @param event an event name.
+     * @param fn the listener registered with {@link #on(String, Class, TypedListener)}.
+     * @return a reference to this object.
+     */
+    public Socket off(String event, TypedListener<?> fn) {
+        ConcurrentLinkedQueue<TypedHandler<?>> handlers = this.typedListeners.get(event);
+        if (handlers != null) {
+            Iterator<TypedHandler<?>> it = handlers.iterator();
+            while (it.hasNext()) {
+                if (it.next().fn == fn) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public Emitter off() {
+        this.typedListeners.clear();
+        return super.off();
+    }
+
+    @Override
+    public Emitter off(String event) {
+        this.typedListeners.remove(event);
+        return super.off(event);
+    }
+
+    /**
+     * Holds the outgoing packets of this socket until {@link #uncork()} is called, so that a burst of emits and
+     * acknowledgements is handed to the connection in a single task. Calls can be nested: the packets are released
+     * by the last call to {@link #uncork()}.
+     *
+     * @return a reference to this object.
+     */
+    public Socket cork() {
+        this.io.exec(new Runnable() {
+            @Override
+            public void run() {
+                Socket.this.corked++;
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Releases the packets held since the matching call to {@link #cork()}, in order.
+     *
+     * @return a reference to this object.
+     */
+    public Socket uncork() {
+        this.io.exec(new Runnable() {
+            @Override
+            public void run() {
+                if (Socket.this.corked > 0 && --Socket.this.corked == 0) {
+                    Socket.this.flushCorked();
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Runs the task on the event thread, holding the packets it emits until it returns, as if it were surrounded by
+     * {@link #cork()} and {@link #uncork()}.
+     *
+     * @param fn the task emitting the packets.
+     * @return a reference to this object.
+     */
+    public Socket batch(final Runnable fn) {
+        this.io.exec(new Runnable() {
+            @Override
+            public void run() {
+                Socket.this.corked++;
+                try {
+                    fn.run();
+                } finally {
+                    if (--Socket.this.corked == 0) {
+                        Socket.this.flushCorked();
+                    }
                 }
             }
         });
         return this;
     }
 
-    private void packet(Packet packet) {
+    private void flushCorked() {
+        if (this.corkBuffer.isEmpty()) return;
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine(String.format("flushing %d corked packets", this.corkBuffer.size()));
+        }
+        for (BufferedPacket corked : this.corkBuffer) {
+            this.io.packet(corked.packet, corked.priority);
+        }
+        this.corkBuffer.clear();
+        this.updateWritable();
+    }
+
+    private void packet(Packet packet, Priority priority) {
         if (packet.type == Parser.EVENT) {
             if (!onAnyOutgoingListeners.isEmpty()) {
-                Object[] argsAsArray = toArray((JSONArray) packet.data);
+                JSONArray data = packet.data instanceof PreparedEvent
+                        ? ((PreparedEvent) packet.data).data() : (JSONArray) packet.data;
+                Object[] argsAsArray = toArray(data);
                 for (Listener listener : onAnyOutgoingListeners) {
                     listener.call(argsAsArray);
                 }
             }
         }
         packet.nsp = this.nsp;
-        this.io.packet(packet);
+        // the handshake is never held, so that the buffered packets can be sent once connected
+        if (this.corked > 0 && packet.type != Parser.CONNECT) {
+            this.corkBuffer.add(new BufferedPacket(packet, 0, priority));
+        } else {
+            this.io.packet(packet, priority);
+        }
     }
 
     private void onopen() {
         logger.fine("transport is open - connecting");
 
         if (this.auth != null) {
-            this.packet(new Packet<>(Parser.CONNECT, new JSONObject(this.auth)));
+            this.packet(new Packet<>(Parser.CONNECT, new JSONObject(this.auth)), Priority.CONTROL);
         } else {
-            this.packet(new Packet<>(Parser.CONNECT));
+            this.packet(new Packet<>(Parser.CONNECT), Priority.CONTROL);
         }
     }
 
@@ -290,13 +866,27 @@ public class Socket extends Emitter {
      * the server.
      */
     private void clearAcks() {
-        for (Ack ack : this.acks.values()) {
+        // the packets still buffered would be sent on reconnection, with an id which is no longer registered
+        for (int i = 0; i < this.acks.capacity(); i++) {
+            if (this.acks.ackAt(i) != null) {
+                this.removeBuffered(this.acks.bufferedAt(i));
+                AckStats stats = this.acks.statsAt(i);
+                if (stats != null) {
+                    stats.recordFailure();
+                }
+            }
+        }
+        for (Ack ack : this.acks.clear()) {
             if (ack instanceof AckWithTimeout) {
+                ((AckWithTimeout) ack).cancelTimer();
+            }
+            if (ack instanceof AckFuture.FutureAck) {
+                ((AckFuture.FutureAck) ack).future().fail(new SocketIOException("socket has been disconnected"));
+            } else if (ack instanceof AckWithTimeout) {
                 ((AckWithTimeout) ack).onTimeout();
             }
             // note: basic Ack objects have no way to report an error, so they are simply ignored here
         }
-        this.acks.clear();
     }
 
     private void onpacket(Packet<?> packet) {
@@ -317,9 +907,7 @@ public class Socket extends Emitter {
 
             case Parser.EVENT:
             case Parser.BINARY_EVENT: {
-                @SuppressWarnings("unchecked")
-                Packet<JSONArray> p = (Packet<JSONArray>) packet;
-                this.onevent(p);
+                this.onevent(packet);
                 break;
             }
 
@@ -342,29 +930,83 @@ public class Socket extends Emitter {
         }
     }
 
-    private void onevent(Packet<JSONArray> packet) {
-        List<Object> args = new ArrayList<>(Arrays.asList(toArray(packet.data)));
+    private void onevent(Packet<?> packet) {
+        String name = packet.data instanceof LazyPayload ? ((LazyPayload) packet.data).event()
+                : ((JSONArray) packet.data).optString(0);
+        if (RESERVED_EVENTS.containsKey(name)) {
+            // the server may send a "drain" event, which must not be mistaken for the local one
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(String.format("discarding reserved event %s", name));
+            }
+            return;
+        }
+
+        JSONArray data;
+        if (packet.data instanceof LazyPayload) {
+            LazyPayload payload = (LazyPayload) packet.data;
+            String event = payload.event();
+            if (this.connected && this.onAnyIncomingListeners.isEmpty() && !this.hasListeners(event)) {
+                Queue<TypedHandler<?>> handlers = this.typedListeners.get(event);
+                if (handlers == null || handlers.isEmpty()) {
+                    if (logger.isLoggable(Level.FINE)) {
+                        logger.fine(String.format("discarding event %s with no listener", event));
+                    }
+                    return;
+                }
+                // only typed listeners: the first argument is bound from the frame
+                Ack ack = packet.id >= 0 ? this.ack(packet.id) : null;
+                for (TypedHandler<?> handler : handlers) {
+                    try {
+                        handler.call(payload, ack);
+                    } catch (DecodingException e) {
+                        logger.log(Level.WARNING, String.format("cannot bind the argument of event %s", event), e);
+                    }
+                }
+                return;
+            }
+            try {
+                data = payload.decode();
+            } catch (DecodingException e) {
+                logger.log(Level.WARNING, String.format("discarding invalid event %s", event), e);
+                return;
+            }
+        } else {
+            data = (JSONArray) packet.data;
+        }
+
+        int length = data.length();
+        Object[] args = toArray(data, packet.id >= 0 ? length + 1 : length);
         if (logger.isLoggable(Level.FINE)) {
-            logger.fine(String.format("emitting event %s", args));
+            logger.fine(String.format("emitting event %s", Arrays.toString(args)));
         }
 
         if (packet.id >= 0) {
             logger.fine("attaching ack callback to event");
-            args.add(this.ack(packet.id));
+            args[length] = this.ack(packet.id);
         }
 
         if (this.connected) {
-            if (args.isEmpty()) return;
-            if (!this.onAnyIncomingListeners.isEmpty()) {
-                Object[] argsAsArray = args.toArray();
-                for (Listener listener : this.onAnyIncomingListeners) {
-                    listener.call(argsAsArray);
-                }
+            if (args.length == 0) return;
+            for (Listener listener : this.onAnyIncomingListeners) {
+                listener.call(args);
             }
-            String event = args.remove(0).toString();
-            super.emit(event, args.toArray());
+            String event = args[0].toString();
+            super.emit(event, Arrays.copyOfRange(args, 1, args.length));
+            this.emitTyped(event, length > 1 ? args[1] : null, packet.id >= 0 ? (Ack) args[length] : null);
         } else {
-            this.receiveBuffer.add(args);
+            this.receiveBuffer.add(new ArrayList<>(Arrays.asList(args)));
+        }
+    }
+
+    private void emitTyped(String event, Object arg, Ack ack) {
+        Queue<TypedHandler<?>> handlers = this.typedListeners.get(event);
+        if (handlers == null) return;
+        for (TypedHandler<?> handler : handlers) {
+            try {
+                handler.call(this.io.codec, arg, ack);
+            } catch (DecodingException e) {
+                logger.log(Level.WARNING, String.format("cannot bind the argument of event %s", event), e);
+            }
         }
     }
 
@@ -374,7 +1016,7 @@ public class Socket extends Emitter {
         return new Ack() {
             @Override
             public void call(final Object... args) {
-                EventThread.exec(new Runnable() {
+                self.io.exec(new Runnable() {
                     @Override
                     public void run() {
                         if (sent[0]) return;
@@ -390,7 +1032,7 @@ public class Socket extends Emitter {
 
                         Packet<JSONArray> packet = new Packet<>(Parser.ACK, jsonArgs);
                         packet.id = id;
-                        self.packet(packet);
+                        self.packet(packet, Priority.ACK);
                     }
                 });
             }
@@ -398,13 +1040,21 @@ public class Socket extends Emitter {
     }
 
     private void onack(Packet<JSONArray> packet) {
-        Ack fn = this.acks.remove(packet.id);
-        if (fn != null) {
+        int index = this.acks.indexOf(packet.id);
+        if (index >= 0) {
+            Ack fn = this.acks.ackAt(index);
+            AckStats stats = this.acks.statsAt(index);
+            if (stats != null) {
+                stats.recordLatency(System.nanoTime() - this.acks.timeAt(index));
+            }
+            this.acks.removeAt(index);
             if (logger.isLoggable(Level.FINE)) {
                 logger.fine(String.format("calling ack %s with %s", packet.id, packet.data));
             }
             fn.call(toArray(packet.data));
         } else {
+            this.badAcks.incrementAndGet();
+            this.io.badAck();
             if (logger.isLoggable(Level.FINE)) {
                 logger.fine(String.format("bad ack %s", packet.id));
             }
@@ -423,14 +1073,21 @@ public class Socket extends Emitter {
         while ((data = this.receiveBuffer.poll()) != null) {
             String event = (String)data.get(0);
             super.emit(event, data.toArray());
+            int size = data.size();
+            Ack ack = data.get(size - 1) instanceof Ack ? (Ack) data.get(size - 1) : null;
+            this.emitTyped(event, (ack != null ? size - 1 : size) > 1 ? data.get(1) : null, ack);
         }
         this.receiveBuffer.clear();
 
-        Packet<JSONArray> packet;
-        while ((packet = this.sendBuffer.poll()) != null) {
-            this.packet(packet);
+        BufferedPacket buffered;
+        while ((buffered = this.pollBuffered()) != null) {
+            this.sendBufferSize.decrementAndGet();
+            this.sendBufferBytes.addAndGet(-buffered.size);
+            this.packet(buffered.packet, buffered.priority);
         }
-        this.sendBuffer.clear();
+        // the blocked emitters can send now
+        this.signalBufferRoom();
+        this.updateWritable();
     }
 
     private void ondisconnect() {
@@ -459,14 +1116,19 @@ public class Socket extends Emitter {
      * @return a reference to this object.
      */
     public Socket close() {
-        EventThread.exec(new Runnable() {
+        this.io.exec(new Runnable() {
             @Override
             public void run() {
+                // the held packets precede the disconnection
+                Socket.this.corked = 0;
+                Socket.this.flushCorked();
+
                 if (Socket.this.connected) {
                     if (logger.isLoggable(Level.FINE)) {
                         logger.fine(String.format("performing disconnect (%s)", Socket.this.nsp));
                     }
-                    Socket.this.packet(new Packet(Parser.DISCONNECT));
+                    // not delayed by the other namespaces, but after the packets held for this one
+                    Socket.this.packet(new Packet(Parser.DISCONNECT), Priority.CONTROL);
                 }
 
                 Socket.this.destroy();
@@ -508,8 +1170,15 @@ public class Socket extends Emitter {
     }
 
     private static Object[] toArray(JSONArray array) {
+        return toArray(array, array.length());
+    }
+
+    /**
+     * Copies the elements of the array, leaving room for extra elements at the end.
+     */
+    private static Object[] toArray(JSONArray array, int size) {
         int length = array.length();
-        Object[] data = new Object[length];
+        Object[] data = new Object[size];
         for (int i = 0; i < length; i++) {
             Object v;
             try {
@@ -518,11 +1187,127 @@ public class Socket extends Emitter {
                 logger.log(Level.WARNING, "An error occured while retrieving data from JSONArray", e);
                 v = null;
             }
+            if (v instanceof TypedValue) {
+                v = ((TypedValue) v).value();
+            }
             data[i] = JSONObject.NULL.equals(v) ? null : v;
         }
         return data;
     }
 
+    /**
+     * Emits volatile events, see {@link Socket#asVolatile()}.
+     */
+    public final class Volatile {
+
+        private Volatile() {}
+
+        /**
+         * Emits an event, unless the socket is not connected or the connection is busy.
+         *
+         * @param event an event name.
+         * @param args data to send.
+         * @return a reference to this object.
+         */
+        public Volatile emit(String event, Object... args) {
+            Socket.this.emitEvent(event, args, true, Priority.NORMAL);
+            return this;
+        }
+
+        /**
+         * Emits a prepared event, unless the socket is not connected or the connection is busy.
+         *
+         * @param event the prepared event.
+         * @return a reference to this object.
+         */
+        public Volatile emit(PreparedEvent event) {
+            Socket.this.emitPrepared(event, null, true, Priority.NORMAL);
+            return this;
+        }
+    }
+
+    /**
+     * A view of a socket whose events have a given priority.
+     */
+    public final class Flagged {
+
+        private final Priority priority;
+
+        private Flagged(Priority priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * Emits an event. When you pass {@link Ack} at the last argument, then the acknowledge is done.
+         *
+         * @param event an event name.
+         * @param args data to send.
+         * @return a reference to this object.
+         */
+        public Flagged emit(String event, Object... args) {
+            Socket.this.emitEvent(event, args, false, this.priority);
+            return this;
+        }
+
+        /**
+         * Emits an event with an acknowledge.
+         *
+         * @param event an event name
+         * @param args data to send.
+         * @param ack the acknowledgement to be called
+         * @return a reference to this object.
+         */
+        public Flagged emit(String event, Object[] args, Ack ack) {
+            Socket.this.emitPacket(Socket.this.eventPacket(event, args), ack, false, this.priority);
+            return this;
+        }
+
+        /**
+         * Emits an event prepared for many sockets, with an optional acknowledge.
+         *
+         * @param event the prepared event.
+         * @param ack the acknowledgement to be called, or {@code null}.
+         * @return a reference to this object.
+         */
+        public Flagged emit(PreparedEvent event, Ack ack) {
+            Socket.this.emitPrepared(event, ack, false, this.priority);
+            return this;
+        }
+    }
+
+    /*package*/ static final class BufferedPacket {
+
+        private final Packet<?> packet;
+        private final long size;
+        private final Priority priority;
+        private boolean removed;
+
+        private BufferedPacket(Packet<?> packet, long size, Priority priority) {
+            this.packet = packet;
+            this.size = size;
+            this.priority = priority;
+        }
+    }
+
+    private static final class TypedHandler<T> {
+
+        private final Class<T> type;
+        private final TypedListener<T> fn;
+
+        private TypedHandler(Class<T> type, TypedListener<T> fn) {
+            this.type = type;
+            this.fn = fn;
+        }
+
+        private void call(LazyPayload payload, Ack ack) {
+            this.fn.call(payload.decodeArgument(this.type), ack);
+        }
+
+        private void call(JsonCodec codec, Object arg, Ack ack) {
+            this.fn.call(codec.convert(arg, this.type), ack);
+        }
+    }
+
     public Socket onAnyIncoming(Listener fn) {
         this.onAnyIncomingListeners.add(fn);
         return this;
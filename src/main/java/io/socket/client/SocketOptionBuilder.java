@@ -68,6 +68,19 @@ public class SocketOptionBuilder {
                 .setReconnectionDelayMax(options.reconnectionDelayMax)
                 .setRandomizationFactor(options.randomizationFactor)
                 .setTimeout(options.timeout)
+                .setMaxTextLength(options.maxTextLength)
+                .setMaxAttachments(options.maxAttachments)
+                .setMaxAttachmentBytes(options.maxAttachmentBytes)
+                .setMaxJsonDepth(options.maxJsonDepth)
+                .setLazyEvents(options.lazyEvents)
+                .setVolatileWriteThreshold(options.volatileWriteThreshold)
+                .setMaxBufferedPackets(options.maxBufferedPackets)
+                .setMaxBufferedBytes(options.maxBufferedBytes)
+                .setBufferOverflowPolicy(options.bufferOverflowPolicy)
+                .setBufferOverflowTimeout(options.bufferOverflowTimeout)
+                .setWriteHighWatermark(options.writeHighWatermark)
+                .setWriteLowWatermark(options.writeLowWatermark)
+                .setWriteBatchBytes(options.writeBatchBytes)
                 .setTransports(options.transports)
                 .setUpgrade(options.upgrade)
                 .setRememberUpgrade(options.rememberUpgrade)
@@ -124,6 +137,71 @@ public class SocketOptionBuilder {
         return this;
     }
 
+    public SocketOptionBuilder setMaxTextLength(int maxTextLength) {
+        this.options.maxTextLength = maxTextLength;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxAttachments(int maxAttachments) {
+        this.options.maxAttachments = maxAttachments;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxAttachmentBytes(long maxAttachmentBytes) {
+        this.options.maxAttachmentBytes = maxAttachmentBytes;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxJsonDepth(int maxJsonDepth) {
+        this.options.maxJsonDepth = maxJsonDepth;
+        return this;
+    }
+
+    public SocketOptionBuilder setLazyEvents(boolean lazyEvents) {
+        this.options.lazyEvents = lazyEvents;
+        return this;
+    }
+
+    public SocketOptionBuilder setVolatileWriteThreshold(int volatileWriteThreshold) {
+        this.options.volatileWriteThreshold = volatileWriteThreshold;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxBufferedPackets(int maxBufferedPackets) {
+        this.options.maxBufferedPackets = maxBufferedPackets;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxBufferedBytes(long maxBufferedBytes) {
+        this.options.maxBufferedBytes = maxBufferedBytes;
+        return this;
+    }
+
+    public SocketOptionBuilder setBufferOverflowPolicy(BufferOverflowPolicy bufferOverflowPolicy) {
+        this.options.bufferOverflowPolicy = bufferOverflowPolicy;
+        return this;
+    }
+
+    public SocketOptionBuilder setBufferOverflowTimeout(long bufferOverflowTimeout) {
+        this.options.bufferOverflowTimeout = bufferOverflowTimeout;
+        return this;
+    }
+
+    public SocketOptionBuilder setWriteHighWatermark(long writeHighWatermark) {
+        this.options.writeHighWatermark = writeHighWatermark;
+        return this;
+    }
+
+    public SocketOptionBuilder setWriteLowWatermark(long writeLowWatermark) {
+        this.options.writeLowWatermark = writeLowWatermark;
+        return this;
+    }
+
+    public SocketOptionBuilder setWriteBatchBytes(long writeBatchBytes) {
+        this.options.writeBatchBytes = writeBatchBytes;
+        return this;
+    }
+
     public SocketOptionBuilder setTransports(String[] transports) {
         this.options.transports = transports;
         return this;
@@ -0,0 +1,16 @@
+package io.socket.client;
+
+/**
+ * Listener of an event whose first argument is bound to a Java type.
+ *
+ * @see Socket#on(String, Class, TypedListener)
+ */
+public interface TypedListener<T> {
+
+    /**
+     * @param arg the first argument of the event, or {@code null} if there is none.
+     * @param ack the acknowledgement expected by the server, or {@code null} if there is none.
+     */
+    void call(T arg, Ack ack);
+
+}
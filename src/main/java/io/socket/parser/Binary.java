@@ -5,6 +5,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
@@ -12,9 +13,9 @@ import java.util.logging.Logger;
 
 public class Binary {
 
-    private static final String KEY_PLACEHOLDER = "_placeholder";
+    /*package*/ static final String KEY_PLACEHOLDER = "_placeholder";
 
-    private static final String KEY_NUM = "num";
+    /*package*/ static final String KEY_NUM = "num";
     
     private static final Logger logger = Logger.getLogger(Binary.class.getName());
 
@@ -78,18 +79,26 @@ public class Binary {
 
     @SuppressWarnings("unchecked")
     public static Packet reconstructPacket(Packet packet, byte[][] buffers) {
-        packet.data = _reconstructPacket(packet.data, buffers);
+        packet.data = reconstruct(packet.data, Arrays.asList(buffers));
         packet.attachments = -1;
        return packet;
     }
 
-    private static Object _reconstructPacket(Object data, byte[][] buffers) {
+    /*package*/ static Object reconstruct(Object data, List<?> buffers) {
+        return _reconstructPacket(data, buffers);
+    }
+
+    private static Object _reconstructPacket(Object data, List<?> buffers) {
         if (data instanceof JSONArray) {
             JSONArray _data = (JSONArray)data;
             int len = _data.length();
             for (int i = 0; i < len; i ++) {
+                Object value = _data.opt(i);
+                Object newValue = _reconstructPacket(value, buffers);
+                // only placeholders are replaced, the rest of the tree is left as is
+                if (newValue == value) continue;
                 try {
-                    _data.put(i, _reconstructPacket(_data.get(i), buffers));
+                    _data.put(i, newValue);
                 } catch (JSONException e) {
                     logger.log(Level.WARNING, "An error occured while putting packet data to JSONObject", e);
                     return null;
@@ -100,13 +109,16 @@ public class Binary {
             JSONObject _data = (JSONObject)data;
             if (_data.optBoolean(KEY_PLACEHOLDER)) {
                 int num = _data.optInt(KEY_NUM, -1);
-                return num >= 0 && num < buffers.length ? buffers[num] : null;
+                return num >= 0 && num < buffers.size() ? buffers.get(num) : null;
             }
             Iterator<?> iterator = _data.keys();
             while (iterator.hasNext()) {
                 String key = (String)iterator.next();
+                Object value = _data.opt(key);
+                Object newValue = _reconstructPacket(value, buffers);
+                if (newValue == value) continue;
                 try {
-                    _data.put(key, _reconstructPacket(_data.get(key), buffers));
+                    _data.put(key, newValue);
                 } catch (JSONException e) {
                     logger.log(Level.WARNING, "An error occured while putting data to JSONObject", e);
                     return null;
@@ -0,0 +1,41 @@
+package io.socket.parser;
+
+/**
+ * Tracks the size of recently encoded frames, so that encoders can size their buffers up front and decide
+ * whether a buffer is worth keeping for the next packet.
+ */
+/*package*/ final class FrameSize {
+
+    private static final int MIN_CAPACITY = 64;
+
+    /**
+     * Buffers larger than this are never retained between packets.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private volatile int average;
+
+    /**
+     * @return the initial capacity of a buffer for the next frame.
+     */
+    int estimate() {
+        int average = this.average;
+        return Math.max(MIN_CAPACITY, average + (average >> 2));
+    }
+
+    /**
+     * Records the size of an encoded frame, as an exponential moving average.
+     */
+    void record(int size) {
+        int average = this.average;
+        this.average = average + ((size - average) >> 3);
+    }
+
+    /**
+     * @return whether a buffer of the given capacity should be kept for the next frame. Buffers that grew far
+     * beyond the usual frame size (for example after a single large packet) are released.
+     */
+    boolean retain(int capacity) {
+        return capacity <= MAX_RETAINED_CAPACITY && capacity <= Math.max(MIN_CAPACITY, this.estimate() << 2);
+    }
+}
@@ -1,14 +1,12 @@
 package io.socket.parser;
 
-import io.socket.hasbinary.HasBinary;
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,37 +14,58 @@ final public class IOParser implements Parser {
 
     private static final Logger logger = Logger.getLogger(IOParser.class.getName());
 
+    private static final int NAMESPACE_CACHE_SIZE = 8;
+
+    /**
+     * Upper bound of the storage allocated up front for binary attachments, the attachment count being announced
+     * by the remote peer.
+     */
+    private static final int MAX_PRESIZED_ATTACHMENTS = 64;
+
     private IOParser() {}
 
     final public static class Encoder implements Parser.Encoder {
 
-        public Encoder() {}
+        private final JsonCodec codec;
+
+        private final FrameSize frameSize = new FrameSize();
+
+        /**
+         * Buffer reused between packets, empty while a packet is being encoded.
+         */
+        private final AtomicReference<StringBuilder> buffer = new AtomicReference<>();
+
+        public Encoder() {
+            this(null);
+        }
+
+        /**
+         * @param codec the codec used to serialize the payloads, or {@code null} to use {@link OrgJsonCodec}.
+         */
+        public Encoder(JsonCodec codec) {
+            this.codec = codec != null ? codec : OrgJsonCodec.INSTANCE;
+        }
 
         @Override
         public void encode(Packet obj, Callback callback) {
-            if ((obj.type == EVENT || obj.type == ACK) && HasBinary.hasBinary(obj.data)) {
-                obj.type = obj.type == EVENT ? BINARY_EVENT : BINARY_ACK;
-            }
-
             if (logger.isLoggable(Level.FINE)) {
                 logger.fine(String.format("encoding packet %s", obj));
             }
 
-            if (BINARY_EVENT == obj.type || BINARY_ACK == obj.type) {
-                encodeAsBinary(obj, callback);
-            } else {
-                String encoding = encodeAsString(obj);
-                callback.call(new String[] {encoding});
+            if (obj.data instanceof PreparedEvent) {
+                // the payload is already serialized
+                callback.call(((PreparedEvent) obj.data).frames(obj.nsp, obj.id));
+                return;
             }
-        }
-
-        private String encodeAsString(Packet obj) {
-            StringBuilder str = new StringBuilder("" + obj.type);
 
-            if (BINARY_EVENT == obj.type || BINARY_ACK == obj.type) {
-                str.append(obj.attachments);
-                str.append("-");
+            List<byte[]> attachments = new ArrayList<>();
+            StringBuilder str = this.buffer.getAndSet(null);
+            if (str == null) {
+                str = new StringBuilder(this.frameSize.estimate());
+            } else {
+                str.setLength(0);
             }
+            str.append(obj.type);
 
             if (obj.nsp != null && obj.nsp.length() != 0 && !"/".equals(obj.nsp)) {
                 str.append(obj.nsp);
@@ -58,22 +77,36 @@ final public class IOParser implements Parser {
             }
 
             if (obj.data != null) {
-                str.append(obj.data);
+                // the payload is serialized once, byte arrays being collected along the way
+                this.codec.encode(obj.data, str, attachments);
+            }
+
+            if (!attachments.isEmpty() && (EVENT == obj.type || ACK == obj.type)) {
+                obj.type = obj.type == EVENT ? BINARY_EVENT : BINARY_ACK;
+                str.setCharAt(0, Character.forDigit(obj.type, 10));
+            }
+
+            if (BINARY_EVENT == obj.type || BINARY_ACK == obj.type) {
+                obj.attachments = attachments.size();
+                str.insert(1, obj.attachments + "-");
             }
 
             if (logger.isLoggable(Level.FINE)) {
                 logger.fine(String.format("encoded %s as %s", obj, str));
             }
-            return str.toString();
-        }
 
-        private void encodeAsBinary(Packet obj, Callback callback) {
-            Binary.DeconstructedPacket deconstruction = Binary.deconstructPacket(obj);
-            String pack = encodeAsString(deconstruction.packet);
-            List<Object> buffers = new ArrayList<Object>(Arrays.asList(deconstruction.buffers));
+            Object[] encoding = new Object[attachments.size() + 1];
+            encoding[0] = str.toString();
 
-            buffers.add(0, pack);
-            callback.call(buffers.toArray());
+            this.frameSize.record(str.length());
+            if (this.frameSize.retain(str.capacity())) {
+                this.buffer.set(str);
+            }
+
+            for (int i = 0; i < attachments.size(); i++) {
+                encoding[i + 1] = attachments.get(i);
+            }
+            callback.call(encoding);
         }
     }
 
@@ -83,15 +116,65 @@ final public class IOParser implements Parser {
 
         private Decoder.Callback onDecodedCallback;
 
+        private final String[] namespaces = new String[NAMESPACE_CACHE_SIZE];
+        private int nextNamespaceSlot;
+
+        private final JsonCodec codec;
+        private final boolean lazyEvents;
+        private final boolean byteBufferAttachments;
+        private final int maxTextLength;
+        private final int maxAttachments;
+        private final long maxAttachmentBytes;
+        private final int maxJsonDepth;
+
+        /**
+         * Number of binary frames still to be discarded, after a binary packet was rejected.
+         */
+        private int skippedAttachments;
+
         public Decoder() {
+            this((JsonCodec) null);
+        }
+
+        /**
+         * @param codec the codec used to parse the payloads, or {@code null} to use {@link OrgJsonCodec}.
+         */
+        public Decoder(JsonCodec codec) {
+            this(options(codec));
+        }
+
+        public Decoder(Options opts) {
+            this.codec = opts.codec != null ? opts.codec : OrgJsonCodec.INSTANCE;
+            this.lazyEvents = opts.lazyEvents;
+            this.byteBufferAttachments = opts.byteBufferAttachments;
+            this.maxTextLength = opts.maxTextLength;
+            this.maxAttachments = opts.maxAttachments;
+            this.maxAttachmentBytes = opts.maxAttachmentBytes;
+            this.maxJsonDepth = opts.maxJsonDepth;
             this.reconstructor = null;
         }
 
+        private static Options options(JsonCodec codec) {
+            Options opts = new Options();
+            opts.codec = codec;
+            return opts;
+        }
+
         @Override
         public void add(String obj) {
-            Packet packet = decodeString(obj);
+            if (this.maxTextLength > 0 && obj.length() > this.maxTextLength) {
+                // the attachments of a rejected binary packet follow, they must be skipped as well
+                this.skippedAttachments = leadingAttachments(obj);
+                this.reconstructor = null;
+                throw new DecodingException(String.format("text frame of %d characters exceeds the limit of %d",
+                        obj.length(), this.maxTextLength));
+            }
+            // a new packet starts, whatever remains of a rejected one is gone
+            this.skippedAttachments = 0;
+
+            Packet<Object> packet = decodeString(obj);
             if (BINARY_EVENT == packet.type || BINARY_ACK == packet.type) {
-                this.reconstructor = new BinaryReconstructor(packet);
+                this.reconstructor = new BinaryReconstructor(packet, this.codec, this.byteBufferAttachments);
 
                 if (this.reconstructor.reconPack.attachments == 0) {
                     if (this.onDecodedCallback != null) {
@@ -107,9 +190,21 @@ final public class IOParser implements Parser {
 
         @Override
         public void add(byte[] obj) {
+            if (this.skippedAttachments > 0) {
+                this.skippedAttachments--;
+                return;
+            }
             if (this.reconstructor == null) {
                 throw new RuntimeException("got binary data when not reconstructing a packet");
             } else {
+                if (this.maxAttachmentBytes > 0 && this.reconstructor.size + obj.length > this.maxAttachmentBytes) {
+                    this.skippedAttachments = this.reconstructor.reconPack.attachments
+                            - this.reconstructor.buffers.size() - 1;
+                    this.reconstructor.finishReconstruction();
+                    this.reconstructor = null;
+                    throw new DecodingException(String.format("binary attachments exceed the limit of %d bytes",
+                            this.maxAttachmentBytes));
+                }
                 Packet packet = this.reconstructor.takeBinaryData(obj);
                 if (packet != null) {
                     this.reconstructor = null;
@@ -120,71 +215,101 @@ final public class IOParser implements Parser {
             }
         }
 
-        private static Packet decodeString(String str) {
-            int i = 0;
+        /**
+         * Reads the number of attachments announced by a binary packet, without decoding the rest of the frame.
+         *
+         * @return the number of attachments, or 0 if the frame is not a valid binary packet.
+         */
+        private static int leadingAttachments(String str) {
+            if (str.isEmpty()) return 0;
+            int type = str.charAt(0) - '0';
+            if (BINARY_EVENT != type && BINARY_ACK != type) return 0;
+
+            int attachments = 0;
+            for (int i = 1; i < str.length(); i++) {
+                char c = str.charAt(i);
+                if (c == '-') {
+                    return i > 1 ? attachments : 0;
+                }
+                if (c < '0' || c > '9' || attachments > (Integer.MAX_VALUE - 9) / 10) {
+                    return 0;
+                }
+                attachments = attachments * 10 + (c - '0');
+            }
+            return 0;
+        }
+
+        private Packet<Object> decodeString(String str) {
             int length = str.length();
+            if (length == 0) {
+                throw new DecodingException("empty packet");
+            }
 
-            Packet<Object> p = new Packet<>(Character.getNumericValue(str.charAt(0)));
+            Packet<Object> p = new Packet<>(str.charAt(0) - '0');
 
             if (p.type < 0 || p.type > types.length - 1) {
                 throw new DecodingException("unknown packet type " + p.type);
             }
 
+            int i = 1;
+
             if (BINARY_EVENT == p.type || BINARY_ACK == p.type) {
-                if (!str.contains("-") || length <= i + 1) {
+                int start = i;
+                int attachments = 0;
+                char c;
+                while (i < length && (c = str.charAt(i)) != '-') {
+                    if (c < '0' || c > '9' || attachments > (Integer.MAX_VALUE - 9) / 10) {
+                        throw new DecodingException("illegal attachments");
+                    }
+                    attachments = attachments * 10 + (c - '0');
+                    i++;
+                }
+                if (i == start || i == length) {
                     throw new DecodingException("illegal attachments");
                 }
-                StringBuilder attachments = new StringBuilder();
-                while (str.charAt(++i) != '-') {
-                    attachments.append(str.charAt(i));
+                if (this.maxAttachments > 0 && attachments > this.maxAttachments) {
+                    // the binary frames that follow belong to the rejected packet
+                    this.skippedAttachments = attachments;
+                    throw new DecodingException(String.format("packet with %d attachments exceeds the limit of %d",
+                            attachments, this.maxAttachments));
                 }
-                p.attachments = Integer.parseInt(attachments.toString());
+                p.attachments = attachments;
+                i++; // skip '-'
             }
 
-            if (length > i + 1 && '/' == str.charAt(i + 1)) {
-                StringBuilder nsp = new StringBuilder();
-                while (true) {
-                    ++i;
-                    char c = str.charAt(i);
-                    if (',' == c) break;
-                    nsp.append(c);
-                    if (i + 1 == length) break;
+            if (i < length && '/' == str.charAt(i)) {
+                int start = i;
+                while (i < length && ',' != str.charAt(i)) {
+                    i++;
+                }
+                p.nsp = namespace(str, start, i);
+                if (i < length) {
+                    i++; // skip ','
                 }
-                p.nsp = nsp.toString();
             } else {
                 p.nsp = "/";
             }
 
-            if (length > i + 1){
-                Character next = str.charAt(i + 1);
-                if (Character.getNumericValue(next) > -1) {
-                    StringBuilder id = new StringBuilder();
-                    while (true) {
-                        ++i;
-                        char c = str.charAt(i);
-                        if (Character.getNumericValue(c) < 0) {
-                            --i;
-                            break;
-                        }
-                        id.append(c);
-                        if (i + 1 == length) break;
-                    }
-                    try {
-                        p.id = Integer.parseInt(id.toString());
-                    } catch (NumberFormatException e){
+            if (i < length && isDigit(str.charAt(i))) {
+                int id = 0;
+                char c;
+                while (i < length && isDigit(c = str.charAt(i))) {
+                    if (id > (Integer.MAX_VALUE - 9) / 10) {
                         throw new DecodingException("invalid payload");
                     }
+                    id = id * 10 + (c - '0');
+                    i++;
                 }
+                p.id = id;
             }
 
-            if (length > i + 1){
-                try {
-                    str.charAt(++i);
-                    p.data = new JSONTokener(str.substring(i)).nextValue();
-                } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while retrieving data from JSONTokener", e);
-                    throw new DecodingException("invalid payload");
-                }
+            if (i < length && this.lazyEvents && EVENT == p.type) {
+                p.data = LazyPayload.scan(this.codec, str, i, this.maxJsonDepth);
+            }
+
+            if (i < length && p.data == null) {
+                checkDepth(str, i, this.maxJsonDepth);
+                p.data = this.codec.decode(str, i);
                 if (!isPayloadValid(p.type, p.data)) {
                     throw new DecodingException("invalid payload");
                 }
@@ -196,6 +321,27 @@ final public class IOParser implements Parser {
             return p;
         }
 
+        /**
+         * Returns the namespace located at {@code str[start, end)}, reusing a previously decoded instance when
+         * possible so that the common case does not allocate.
+         */
+        private String namespace(String str, int start, int end) {
+            int len = end - start;
+            for (String nsp : this.namespaces) {
+                if (nsp != null && nsp.length() == len && str.regionMatches(start, nsp, 0, len)) {
+                    return nsp;
+                }
+            }
+            String nsp = str.substring(start, end);
+            this.namespaces[this.nextNamespaceSlot] = nsp;
+            this.nextNamespaceSlot = (this.nextNamespaceSlot + 1) % this.namespaces.length;
+            return nsp;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
         private static boolean isPayloadValid(int type, Object payload) {
             switch (type) {
                 case Parser.CONNECT:
@@ -228,25 +374,114 @@ final public class IOParser implements Parser {
         public void onDecoded (Callback callback) {
             this.onDecodedCallback = callback;
         }
+
+        public static class Options {
+
+            /**
+             * The codec used to parse the payloads. Defaults to {@link OrgJsonCodec}.
+             */
+            public JsonCodec codec;
+
+            /**
+             * Whether the arguments of EVENT packets are parsed on demand. When enabled, the data of such packets is
+             * a {@link LazyPayload} instead of a {@link JSONArray}.
+             */
+            public boolean lazyEvents;
+
+            /**
+             * Whether binary attachments are exposed as read-only {@link java.nio.ByteBuffer} views over the received
+             * frames, instead of byte arrays.
+             */
+            public boolean byteBufferAttachments;
+
+            /**
+             * Maximum length of a text frame, in characters. Zero means no limit.
+             */
+            public int maxTextLength;
+
+            /**
+             * Maximum number of binary attachments of a packet. Zero means no limit.
+             */
+            public int maxAttachments;
+
+            /**
+             * Maximum total size of the binary attachments of a packet, in bytes. Zero means no limit.
+             */
+            public long maxAttachmentBytes;
+
+            /**
+             * Maximum nesting depth of the JSON payload. Zero means no limit.
+             */
+            public int maxJsonDepth;
+        }
     }
 
 
+    /**
+     * Checks the nesting depth of the JSON value starting at the given offset, before it is handed to the codec
+     * which may recurse once per level.
+     *
+     * @throws DecodingException if the value is nested deeper than the limit.
+     */
+    /*package*/ static void checkDepth(String str, int offset, int maxDepth) {
+        if (maxDepth <= 0) return;
+
+        int depth = 0;
+        boolean inString = false;
+        int length = str.length();
+        for (int i = offset; i < length; i++) {
+            char c = str.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '[' || c == '{') {
+                if (++depth > maxDepth) {
+                    throw new DecodingException(String.format("payload exceeds the maximum depth of %d", maxDepth));
+                }
+            } else if (c == ']' || c == '}') {
+                depth--;
+            }
+        }
+    }
+
     /*package*/ static class BinaryReconstructor {
 
-        public Packet reconPack;
+        public Packet<Object> reconPack;
+
+        /*package*/ List<Object> buffers;
 
-        /*package*/ List<byte[]> buffers;
+        /**
+         * Total size of the received attachments, in bytes.
+         */
+        /*package*/ long size;
 
-        BinaryReconstructor(Packet packet) {
+        private final JsonCodec codec;
+        private final boolean byteBufferAttachments;
+
+        BinaryReconstructor(Packet<Object> packet, JsonCodec codec) {
+            this(packet, codec, false);
+        }
+
+        BinaryReconstructor(Packet<Object> packet, JsonCodec codec, boolean byteBufferAttachments) {
             this.reconPack = packet;
-            this.buffers = new ArrayList<>();
+            this.buffers = new ArrayList<>(Math.min(packet.attachments, MAX_PRESIZED_ATTACHMENTS));
+            this.codec = codec;
+            this.byteBufferAttachments = byteBufferAttachments;
         }
 
-        public Packet takeBinaryData(byte[] binData) {
-            this.buffers.add(binData);
+        public Packet<Object> takeBinaryData(byte[] binData) {
+            this.size += binData.length;
+            this.buffers.add(this.byteBufferAttachments ? ByteBuffer.wrap(binData).asReadOnlyBuffer() : binData);
             if (this.buffers.size() == this.reconPack.attachments) {
-                Packet packet = Binary.reconstructPacket(this.reconPack,
-                        this.buffers.toArray(new byte[this.buffers.size()][]));
+                Packet<Object> packet = this.reconPack;
+                // placeholders are resolved by index, directly from the received frames
+                packet.data = this.codec.reconstruct(packet.data, this.buffers);
+                packet.attachments = -1;
                 this.finishReconstruction();
                 return packet;
             }
@@ -256,6 +491,7 @@ final public class IOParser implements Parser {
         public void finishReconstruction () {
             this.reconPack = null;
             this.buffers = new ArrayList<>();
+            this.size = 0;
         }
     }
 }
@@ -0,0 +1,71 @@
+package io.socket.parser;
+
+import java.util.List;
+
+/**
+ * Converts packet payloads between their JSON text form and the object model handed to the application.
+ *
+ * <p>{@link IOParser} delegates all JSON work to a codec, so that the tokenizer and the serializer can be
+ * replaced by a faster engine. Implementations must produce and accept the org.json object model
+ * ({@link org.json.JSONArray}, {@link org.json.JSONObject}, {@link org.json.JSONObject#NULL}), since this is
+ * what listeners receive. The default implementation is {@link OrgJsonCodec}.</p>
+ */
+public interface JsonCodec {
+
+    /**
+     * Parses the JSON value starting at the given offset of the text.
+     *
+     * @param text the raw packet.
+     * @param offset index of the first character of the value.
+     * @return the parsed value.
+     * @throws DecodingException if the value is not valid JSON.
+     */
+    Object decode(String text, int offset);
+
+    /**
+     * Parses the JSON value starting at the given offset of the text as an instance of the given type.
+     *
+     * <p>This is used by typed listeners, so that an engine able to bind JSON text directly to Java types does not
+     * have to build the org.json object model first.</p>
+     *
+     * @param text the raw packet.
+     * @param offset index of the first character of the value.
+     * @param type the expected type.
+     * @return the parsed value.
+     * @throws DecodingException if the value is not valid JSON or cannot be bound to the type.
+     */
+    <T> T decode(String text, int offset, Class<T> type);
+
+    /**
+     * Converts a value of the org.json object model, as returned by {@link #decode(String, int)}, to the given
+     * type.
+     *
+     * @param value the decoded value.
+     * @param type the expected type.
+     * @return the converted value.
+     * @throws DecodingException if the value cannot be bound to the type.
+     */
+    <T> T convert(Object value, Class<T> type);
+
+    /**
+     * Appends the JSON representation of the value, in a single traversal.
+     *
+     * <p>Byte arrays and {@link java.nio.ByteBuffer} views are replaced with placeholders
+     * ({@code {"_placeholder":true,"num":n}}) and appended to the attachments, in order. {@link TypedValue}
+     * arguments are written from the fields of the wrapped object. The value itself must not be modified.</p>
+     *
+     * @param data the value to serialize.
+     * @param out the destination.
+     * @param attachments the list where the byte arrays are collected.
+     */
+    void encode(Object data, StringBuilder out, List<byte[]> attachments);
+
+    /**
+     * Replaces the placeholders found in the value with the matching attachments, in a single traversal.
+     *
+     * @param data the value to reconstruct.
+     * @param attachments the binary attachments, either byte arrays or {@link java.nio.ByteBuffer} views.
+     * @return the value, with attachments instead of placeholders.
+     */
+    Object reconstruct(Object data, List<?> attachments);
+}
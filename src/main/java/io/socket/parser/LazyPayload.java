@@ -0,0 +1,127 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+
+/**
+ * The payload of an EVENT packet whose arguments have not been parsed yet.
+ *
+ * <p>Only the event name is extracted when the packet is decoded; the arguments are parsed from the original
+ * frame on the first call to {@link #decode()}, so that events nobody listens to can be discarded cheaply.</p>
+ */
+public class LazyPayload {
+
+    private final JsonCodec codec;
+    private final String text;
+    private final int offset;
+    private final String event;
+    private final int argumentOffset;
+    private final int maxDepth;
+    private JSONArray data;
+    private Class<?> argumentType;
+    private Object argument;
+
+    private LazyPayload(JsonCodec codec, String text, int offset, String event, int argumentOffset, int maxDepth) {
+        this.codec = codec;
+        this.text = text;
+        this.offset = offset;
+        this.event = event;
+        this.argumentOffset = argumentOffset;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Reads the event name of the JSON array starting at the given offset.
+     *
+     * @return the payload, or {@code null} if the event name is not a plain string literal, in which case the
+     * payload must be parsed eagerly.
+     */
+    /*package*/ static LazyPayload scan(JsonCodec codec, String text, int offset, int maxDepth) {
+        int length = text.length();
+        int i = skipWhitespace(text, offset);
+        if (i >= length || text.charAt(i) != '[') return null;
+        i = skipWhitespace(text, i + 1);
+        if (i >= length || text.charAt(i) != '"') return null;
+
+        int start = ++i;
+        char c;
+        while (i < length && (c = text.charAt(i)) != '"') {
+            // escaped names are rare, leave them to the codec
+            if (c == '\\') return null;
+            i++;
+        }
+        if (i >= length) return null;
+        int end = i;
+
+        i = skipWhitespace(text, i + 1);
+        if (i >= length || (text.charAt(i) != ',' && text.charAt(i) != ']')) return null;
+
+        int argumentOffset = text.charAt(i) == ',' ? i + 1 : -1;
+        return new LazyPayload(codec, text, offset, text.substring(start, end), argumentOffset, maxDepth);
+    }
+
+    private static int skipWhitespace(String text, int i) {
+        int length = text.length();
+        while (i < length && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the event name.
+     */
+    public String event() {
+        return this.event;
+    }
+
+    /**
+     * Parses the whole payload, including the event name as first element.
+     *
+     * @return the parsed payload.
+     * @throws DecodingException if the payload is not valid.
+     */
+    public JSONArray decode() {
+        if (this.data == null) {
+            IOParser.checkDepth(this.text, this.offset, this.maxDepth);
+            Object data = this.codec.decode(this.text, this.offset);
+            if (!(data instanceof JSONArray)) {
+                throw new DecodingException("invalid payload");
+            }
+            this.data = (JSONArray) data;
+        }
+        return this.data;
+    }
+
+    /**
+     * Parses the first argument of the event as an instance of the given type, without parsing the rest of the
+     * payload. The result is kept for the following calls with the same type.
+     *
+     * @param type the expected type.
+     * @return the argument, or {@code null} if the event has no argument.
+     * @throws DecodingException if the argument is not valid or cannot be bound to the type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T decodeArgument(Class<T> type) {
+        if (this.argumentType == type) {
+            return (T) this.argument;
+        }
+
+        T argument;
+        if (this.data != null) {
+            argument = this.codec.convert(this.data.opt(1), type);
+        } else if (this.argumentOffset < 0) {
+            argument = null;
+        } else {
+            IOParser.checkDepth(this.text, this.offset, this.maxDepth);
+            argument = this.codec.decode(this.text, this.argumentOffset, type);
+        }
+        this.argumentType = type;
+        this.argument = argument;
+        return argument;
+    }
+
+    @Override
+    public String toString() {
+        return this.text.substring(this.offset);
+    }
+}
@@ -0,0 +1,438 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A minimal MessagePack serializer for the org.json object model, producing the same output as the
+ * notepack.io library used by socket.io-msgpack-parser.
+ */
+/*package*/ final class MsgPack {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int EXT_TIMESTAMP = -1;
+
+    /**
+     * Marker for the `undefined` value of notepack.io, which is skipped in maps.
+     */
+    private static final Object UNDEFINED = new Object();
+
+    private MsgPack() {}
+
+    /*package*/ static final class Writer {
+
+        private byte[] buf;
+        private int count;
+
+        Writer(int size) {
+            this.buf = new byte[size];
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(this.buf, this.count);
+        }
+
+        int size() {
+            return this.count;
+        }
+
+        int capacity() {
+            return this.buf.length;
+        }
+
+        void reset() {
+            this.count = 0;
+        }
+
+        Writer writeNil() {
+            return this.writeByte(0xc0);
+        }
+
+        Writer writeBoolean(boolean value) {
+            return this.writeByte(value ? 0xc3 : 0xc2);
+        }
+
+        Writer writeInt(long value) {
+            if (value >= 0) {
+                if (value < 0x80) {
+                    this.writeByte((int) value);
+                } else if (value < 0x100) {
+                    this.writeByte(0xcc).writeByte((int) value);
+                } else if (value < 0x10000) {
+                    this.writeByte(0xcd).writeShort((int) value);
+                } else if (value < 0x100000000L) {
+                    this.writeByte(0xce).writeInt32((int) value);
+                } else {
+                    this.writeByte(0xcf).writeInt64(value);
+                }
+            } else {
+                if (value >= -0x20) {
+                    this.writeByte((int) value);
+                } else if (value >= -0x80) {
+                    this.writeByte(0xd0).writeByte((int) value);
+                } else if (value >= -0x8000) {
+                    this.writeByte(0xd1).writeShort((int) value);
+                } else if (value >= -0x80000000L) {
+                    this.writeByte(0xd2).writeInt32((int) value);
+                } else {
+                    this.writeByte(0xd3).writeInt64(value);
+                }
+            }
+            return this;
+        }
+
+        Writer writeDouble(double value) {
+            return this.writeByte(0xcb).writeInt64(Double.doubleToLongBits(value));
+        }
+
+        Writer writeString(String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            int length = bytes.length;
+            if (length < 0x20) {
+                this.writeByte(0xa0 | length);
+            } else if (length < 0x100) {
+                this.writeByte(0xd9).writeByte(length);
+            } else if (length < 0x10000) {
+                this.writeByte(0xda).writeShort(length);
+            } else {
+                this.writeByte(0xdb).writeInt32(length);
+            }
+            return this.writeBytes(bytes);
+        }
+
+        Writer writeBinary(byte[] value) {
+            int length = value.length;
+            if (length < 0x100) {
+                this.writeByte(0xc4).writeByte(length);
+            } else if (length < 0x10000) {
+                this.writeByte(0xc5).writeShort(length);
+            } else {
+                this.writeByte(0xc6).writeInt32(length);
+            }
+            return this.writeBytes(value);
+        }
+
+        Writer writeArrayHeader(int size) {
+            if (size < 0x10) {
+                this.writeByte(0x90 | size);
+            } else if (size < 0x10000) {
+                this.writeByte(0xdc).writeShort(size);
+            } else {
+                this.writeByte(0xdd).writeInt32(size);
+            }
+            return this;
+        }
+
+        Writer writeMapHeader(int size) {
+            if (size < 0x10) {
+                this.writeByte(0x80 | size);
+            } else if (size < 0x10000) {
+                this.writeByte(0xde).writeShort(size);
+            } else {
+                this.writeByte(0xdf).writeInt32(size);
+            }
+            return this;
+        }
+
+        Writer writeValue(Object value) {
+            if (value == null || JSONObject.NULL.equals(value)) {
+                this.writeNil();
+            } else if (value instanceof String) {
+                this.writeString((String) value);
+            } else if (value instanceof Boolean) {
+                this.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+                this.writeInt(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                double number = ((Number) value).doubleValue();
+                // like JavaScript numbers, integral values are sent as integers
+                if (number == Math.rint(number) && !Double.isInfinite(number)
+                        && Math.abs(number) < 0x20000000000000L) {
+                    this.writeInt((long) number);
+                } else {
+                    this.writeDouble(number);
+                }
+            } else if (value instanceof byte[]) {
+                this.writeBinary((byte[]) value);
+            } else if (value instanceof ByteBuffer) {
+                this.writeBinary(ObjectBinding.read(value, byte[].class));
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                int length = array.length();
+                this.writeArrayHeader(length);
+                for (int i = 0; i < length; i++) {
+                    this.writeValue(array.opt(i));
+                }
+            } else if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                this.writeMapHeader(object.length());
+                Iterator<?> keys = object.keys();
+                while (keys.hasNext()) {
+                    String key = (String) keys.next();
+                    this.writeString(key);
+                    this.writeValue(object.opt(key));
+                }
+            } else if (value instanceof PreparedEvent) {
+                this.writeValue(((PreparedEvent) value).data());
+            } else if (value instanceof TypedValue) {
+                TypedValue typed = (TypedValue) value;
+                this.writeValue(ObjectBinding.toJSON(typed.value(), typed.type()));
+            } else if (value instanceof Map) {
+                this.writeValue(new JSONObject((Map) value));
+            } else if (value instanceof Collection) {
+                this.writeValue(new JSONArray((Collection) value));
+            } else if (value instanceof Date) {
+                this.writeTimestamp(((Date) value).getTime());
+            } else {
+                this.writeString(value.toString());
+            }
+            return this;
+        }
+
+        private void writeTimestamp(long time) {
+            long seconds = time >= 0 ? time / 1000 : -((999 - time) / 1000);
+            long nanos = (time - seconds * 1000) * 1000000;
+            if ((seconds >>> 34) == 0) {
+                long data = (nanos << 34) | seconds;
+                if ((data & 0xffffffff00000000L) == 0) {
+                    this.writeByte(0xd6).writeByte(EXT_TIMESTAMP).writeInt32((int) data);
+                } else {
+                    this.writeByte(0xd7).writeByte(EXT_TIMESTAMP).writeInt64(data);
+                }
+            } else {
+                this.writeByte(0xc7).writeByte(12).writeByte(EXT_TIMESTAMP)
+                        .writeInt32((int) nanos).writeInt64(seconds);
+            }
+        }
+
+        private Writer writeByte(int value) {
+            this.ensureCapacity(1);
+            this.buf[this.count++] = (byte) value;
+            return this;
+        }
+
+        private Writer writeShort(int value) {
+            this.ensureCapacity(2);
+            this.buf[this.count++] = (byte) (value >>> 8);
+            this.buf[this.count++] = (byte) value;
+            return this;
+        }
+
+        private Writer writeInt32(int value) {
+            this.ensureCapacity(4);
+            this.buf[this.count++] = (byte) (value >>> 24);
+            this.buf[this.count++] = (byte) (value >>> 16);
+            this.buf[this.count++] = (byte) (value >>> 8);
+            this.buf[this.count++] = (byte) value;
+            return this;
+        }
+
+        private Writer writeInt64(long value) {
+            return this.writeInt32((int) (value >>> 32)).writeInt32((int) value);
+        }
+
+        private Writer writeBytes(byte[] bytes) {
+            this.ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, this.buf, this.count, bytes.length);
+            this.count += bytes.length;
+            return this;
+        }
+
+        private void ensureCapacity(int n) {
+            if (this.count + n > this.buf.length) {
+                this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length << 1, this.count + n));
+            }
+        }
+    }
+
+    /*package*/ static final class Reader {
+
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        boolean hasRemaining() {
+            return this.pos < this.buf.length;
+        }
+
+        /**
+         * Reads the next value: maps and arrays become {@link JSONObject} and {@link JSONArray} instances,
+         * with {@link JSONObject#NULL} for nil values.
+         *
+         * @throws DecodingException if the data is not valid MessagePack.
+         */
+        Object readValue() {
+            int b = this.readByte();
+            if (b <= 0x7f) return b;
+            if (b >= 0xe0) return b - 0x100;
+            if ((b & 0xf0) == 0x80) return this.readMap(b & 0x0f);
+            if ((b & 0xf0) == 0x90) return this.readArray(b & 0x0f);
+            if ((b & 0xe0) == 0xa0) return this.readString(b & 0x1f);
+
+            switch (b) {
+                case 0xc0: return JSONObject.NULL;
+                case 0xc2: return false;
+                case 0xc3: return true;
+                case 0xc4: return this.readBytes(this.readByte());
+                case 0xc5: return this.readBytes(this.readShort());
+                case 0xc6: return this.readBytes(this.readLength());
+                case 0xc7: return this.readExt(this.readByte());
+                case 0xc8: return this.readExt(this.readShort());
+                case 0xc9: return this.readExt(this.readLength());
+                case 0xca: return (double) Float.intBitsToFloat(this.readInt32());
+                case 0xcb: return Double.longBitsToDouble(this.readInt64());
+                case 0xcc: return this.readByte();
+                case 0xcd: return this.readShort();
+                case 0xce: return toNumber(this.readInt32() & 0xffffffffL);
+                case 0xcf: {
+                    long value = this.readInt64();
+                    // beyond the range of a long, precision is lost anyway in JavaScript
+                    return value >= 0 ? toNumber(value) : (Object) ((value >>> 1) * 2.0);
+                }
+                case 0xd0: return (int) (byte) this.readByte();
+                case 0xd1: return (int) (short) this.readShort();
+                case 0xd2: return this.readInt32();
+                case 0xd3: return toNumber(this.readInt64());
+                case 0xd4: return this.readExt(1);
+                case 0xd5: return this.readExt(2);
+                case 0xd6: return this.readExt(4);
+                case 0xd7: return this.readExt(8);
+                case 0xd8: return this.readExt(16);
+                case 0xd9: return this.readString(this.readByte());
+                case 0xda: return this.readString(this.readShort());
+                case 0xdb: return this.readString(this.readLength());
+                case 0xdc: return this.readArray(this.readShort());
+                case 0xdd: return this.readArray(this.readLength());
+                case 0xde: return this.readMap(this.readShort());
+                case 0xdf: return this.readMap(this.readLength());
+                default:
+                    throw new DecodingException("invalid msgpack type " + b);
+            }
+        }
+
+        private JSONArray readArray(int size) {
+            this.checkRemaining(size);
+            JSONArray array = new JSONArray();
+            for (int i = 0; i < size; i++) {
+                Object value = this.readValue();
+                array.put(value == UNDEFINED ? JSONObject.NULL : value);
+            }
+            return array;
+        }
+
+        private JSONObject readMap(int size) {
+            this.checkRemaining(size);
+            JSONObject object = new JSONObject();
+            for (int i = 0; i < size; i++) {
+                String key = this.readValue().toString();
+                Object value = this.readValue();
+                if (value == UNDEFINED) continue;
+                try {
+                    object.put(key, value);
+                } catch (JSONException e) {
+                    throw new DecodingException("invalid payload");
+                }
+            }
+            return object;
+        }
+
+        private String readString(int length) {
+            this.checkRemaining(length);
+            String value = new String(this.buf, this.pos, length, UTF_8);
+            this.pos += length;
+            return value;
+        }
+
+        private byte[] readBytes(int length) {
+            this.checkRemaining(length);
+            byte[] value = Arrays.copyOfRange(this.buf, this.pos, this.pos + length);
+            this.pos += length;
+            return value;
+        }
+
+        private Object readExt(int length) {
+            int type = (byte) this.readByte();
+            this.checkRemaining(length);
+            int start = this.pos;
+            this.pos += length;
+
+            if (type == 0 && length == 1 && this.buf[start] == 0) {
+                return UNDEFINED;
+            }
+            if (type == EXT_TIMESTAMP) {
+                int end = this.pos;
+                this.pos = start;
+                long seconds;
+                long nanos;
+                if (length == 4) {
+                    seconds = this.readInt32() & 0xffffffffL;
+                    nanos = 0;
+                } else if (length == 8) {
+                    long data = this.readInt64();
+                    seconds = data & 0x3ffffffffL;
+                    nanos = data >>> 34;
+                } else if (length == 12) {
+                    nanos = this.readInt32() & 0xffffffffL;
+                    seconds = this.readInt64();
+                } else {
+                    throw new DecodingException("invalid msgpack timestamp");
+                }
+                this.pos = end;
+                return new Date(seconds * 1000 + nanos / 1000000);
+            }
+            throw new DecodingException("unsupported msgpack extension " + type);
+        }
+
+        private int readByte() {
+            this.checkRemaining(1);
+            return this.buf[this.pos++] & 0xff;
+        }
+
+        private int readShort() {
+            return (this.readByte() << 8) | this.readByte();
+        }
+
+        private int readInt32() {
+            return (this.readShort() << 16) | this.readShort();
+        }
+
+        private long readInt64() {
+            return ((long) this.readInt32() << 32) | (this.readInt32() & 0xffffffffL);
+        }
+
+        private int readLength() {
+            int length = this.readInt32();
+            if (length < 0) {
+                throw new DecodingException("invalid msgpack length");
+            }
+            return length;
+        }
+
+        private void checkRemaining(int n) {
+            if (n > this.buf.length - this.pos) {
+                throw new DecodingException("unexpected end of msgpack data");
+            }
+        }
+
+        private static Object toNumber(long value) {
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A parser encoding each packet as a single MessagePack binary frame, compatible with
+ * <a href="https://github.com/socketio/socket.io-msgpack-parser">socket.io-msgpack-parser</a>.
+ *
+ * <p>Byte arrays are embedded in the frame, so there are no binary attachments. The server must use the same
+ * parser:</p>
+ *
+ * <pre>
+ * IO.Options options = new IO.Options();
+ * options.encoder = new MsgPackParser.Encoder();
+ * options.decoder = new MsgPackParser.Decoder();
+ * </pre>
+ */
+final public class MsgPackParser implements Parser {
+
+    private static final Logger logger = Logger.getLogger(MsgPackParser.class.getName());
+
+    private MsgPackParser() {}
+
+    final public static class Encoder implements Parser.Encoder {
+
+        private final FrameSize frameSize = new FrameSize();
+
+        /**
+         * Writer reused between packets, empty while a packet is being encoded.
+         */
+        private final AtomicReference<MsgPack.Writer> writer = new AtomicReference<>();
+
+        public Encoder() {}
+
+        @Override
+        public void encode(Packet obj, Callback callback) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(String.format("encoding packet %s", obj));
+            }
+
+            // the msgpack parser has no dedicated binary types
+            int type = obj.type;
+            if (type == BINARY_EVENT) {
+                type = EVENT;
+            } else if (type == BINARY_ACK) {
+                type = ACK;
+            }
+
+            boolean hasData = obj.data != null;
+            boolean hasId = obj.id >= 0;
+            String nsp = obj.nsp != null ? obj.nsp : "/";
+
+            MsgPack.Writer writer = this.writer.getAndSet(null);
+            if (writer == null) {
+                writer = new MsgPack.Writer(this.frameSize.estimate());
+            } else {
+                writer.reset();
+            }
+            writer.writeMapHeader(2 + (hasData ? 1 : 0) + (hasId ? 1 : 0));
+            writer.writeString("type").writeInt(type);
+            writer.writeString("nsp").writeString(nsp);
+            if (hasData) {
+                writer.writeString("data").writeValue(obj.data);
+            }
+            if (hasId) {
+                writer.writeString("id").writeInt(obj.id);
+            }
+
+            byte[] frame = writer.toByteArray();
+
+            this.frameSize.record(writer.size());
+            if (this.frameSize.retain(writer.capacity())) {
+                this.writer.set(writer);
+            }
+            callback.call(new Object[] {frame});
+        }
+    }
+
+    final public static class Decoder implements Parser.Decoder {
+
+        private Decoder.Callback onDecodedCallback;
+
+        public Decoder() {}
+
+        @Override
+        public void add(String obj) {
+            throw new DecodingException("invalid payload type");
+        }
+
+        @Override
+        public void add(byte[] obj) {
+            MsgPack.Reader reader = new MsgPack.Reader(obj);
+            Object value = reader.readValue();
+            if (!(value instanceof JSONObject) || reader.hasRemaining()) {
+                throw new DecodingException("invalid payload");
+            }
+            JSONObject decoded = (JSONObject) value;
+
+            Object type = decoded.opt("type");
+            if (!(type instanceof Integer) || (Integer) type < CONNECT || (Integer) type > CONNECT_ERROR) {
+                throw new DecodingException("invalid packet type");
+            }
+            Object nsp = decoded.opt("nsp");
+            if (!(nsp instanceof String)) {
+                throw new DecodingException("invalid namespace");
+            }
+            Object data = decoded.opt("data");
+            if (JSONObject.NULL.equals(data)) {
+                data = null;
+            }
+            if (!isPayloadValid((Integer) type, data)) {
+                throw new DecodingException("invalid payload");
+            }
+            Object id = decoded.opt("id");
+            if (id != null && !(id instanceof Integer)) {
+                throw new DecodingException("invalid packet id");
+            }
+
+            Packet<Object> packet = new Packet<>((Integer) type, data);
+            packet.nsp = (String) nsp;
+            packet.id = id != null ? (Integer) id : -1;
+
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(String.format("decoded %s", decoded));
+            }
+            if (this.onDecodedCallback != null) {
+                this.onDecodedCallback.call(packet);
+            }
+        }
+
+        private static boolean isPayloadValid(int type, Object payload) {
+            switch (type) {
+                case Parser.CONNECT:
+                    return payload == null || payload instanceof JSONObject;
+                case Parser.DISCONNECT:
+                    return payload == null;
+                case Parser.CONNECT_ERROR:
+                    return payload instanceof String || payload instanceof JSONObject;
+                case Parser.EVENT:
+                    return payload instanceof JSONArray
+                            && ((JSONArray) payload).length() > 0
+                            && !((JSONArray) payload).isNull(0);
+                case Parser.ACK:
+                    return payload instanceof JSONArray;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public void destroy() {
+            this.onDecodedCallback = null;
+        }
+
+        @Override
+        public void onDecoded(Callback callback) {
+            this.onDecodedCallback = callback;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the fields of a plain Java class to the properties of a JSON object.
+ *
+ * <p>All the non-static, non-transient fields of the class and of its superclasses are bound, under their own
+ * name. The class must have a no-argument constructor, which may be private. The reflective metadata is computed
+ * once per class and cached.</p>
+ *
+ * <p>The classes of the JDK are never bound field by field, since their fields are not accessible from Java 17
+ * onwards: dates are sent as ISO 8601 strings, like JavaScript does, an {@code Optional} as its value and the
+ * other JDK types as their {@code toString()}.</p>
+ */
+/*package*/ final class ObjectBinding<T> {
+
+    private static final ConcurrentHashMap<Class<?>, ObjectBinding<?>> bindings = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final Constructor<T> constructor;
+    /*package*/ final Property[] properties;
+
+    private ObjectBinding(Class<T> type) {
+        this.type = type;
+        Constructor<T> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            // the class can still be written
+            constructor = null;
+        }
+        this.constructor = constructor;
+
+        List<Property> properties = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+                field.setAccessible(true);
+                properties.add(new Property(field));
+            }
+        }
+        this.properties = properties.toArray(new Property[properties.size()]);
+    }
+
+    @SuppressWarnings("unchecked")
+    /*package*/ static <T> ObjectBinding<T> of(Class<T> type) {
+        if (!isBindable(type)) {
+            throw new IllegalArgumentException("cannot bind the fields of " + type.getName());
+        }
+        ObjectBinding<?> binding = bindings.get(type);
+        if (binding == null) {
+            binding = new ObjectBinding<>(type);
+            ObjectBinding<?> previous = bindings.putIfAbsent(type, binding);
+            if (previous != null) binding = previous;
+        }
+        return (ObjectBinding<T>) binding;
+    }
+
+    /**
+     * Whether the fields of the class can be bound, which excludes the classes of the JDK.
+     */
+    /*package*/ static boolean isBindable(Class<?> type) {
+        String name = type.getName();
+        return !name.startsWith("java.") && !name.startsWith("javax.");
+    }
+
+    /**
+     * Converts a value of a JDK class, other than the strings, numbers, arrays, collections and maps, to a value
+     * which can be written.
+     *
+     * @return a string, or the value of an {@code Optional}, or {@code null}.
+     */
+    /*package*/ static Object jdkValue(Object value) {
+        if (value instanceof Date) {
+            return formatDate((Date) value);
+        } else if (value instanceof Calendar) {
+            return formatDate(((Calendar) value).getTime());
+        } else if (value instanceof TimeZone) {
+            return ((TimeZone) value).getID();
+        } else if (value.getClass().getName().equals("java.util.Optional")) {
+            // Optional is referenced by name, since the library runs on Java 7
+            try {
+                Class<?> type = value.getClass();
+                return (Boolean) type.getMethod("isPresent").invoke(value) ? type.getMethod("get").invoke(value) : null;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        // java.time values, UUID, URI, Locale...
+        return value.toString();
+    }
+
+    /**
+     * Converts a value of the org.json object model to the given type.
+     *
+     * @throws DecodingException if the value cannot be bound to the type.
+     */
+    @SuppressWarnings("unchecked")
+    /*package*/ static <T> T read(Object value, Class<T> type) {
+        return (T) read(value, type, type);
+    }
+
+    private static Object read(Object value, Class<?> type, Type genericType) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            return null;
+        }
+        if (type.isPrimitive()) {
+            type = box(type);
+        }
+        if (type.isInstance(value)) {
+            return value;
+        }
+
+        if (type == String.class) {
+            return value.toString();
+        } else if (Number.class.isAssignableFrom(type) && (value instanceof Number || value instanceof String)) {
+            return readNumber(value, type);
+        } else if (type == Boolean.class && value instanceof String) {
+            return Boolean.valueOf((String) value);
+        } else if (type == Character.class && value instanceof String && ((String) value).length() == 1) {
+            return ((String) value).charAt(0);
+        } else if (type.isEnum() && value instanceof String) {
+            return readEnum(type, (String) value);
+        } else if (type == byte[].class && value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } else if (type.isArray() && value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            Class<?> componentType = type.getComponentType();
+            int length = array.length();
+            Object result = Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++) {
+                Object element = read(array.opt(i), componentType, componentType);
+                if (element != null || !componentType.isPrimitive()) {
+                    Array.set(result, i, element);
+                }
+            }
+            return result;
+        } else if (Collection.class.isAssignableFrom(type) && value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            Type elementType = typeArgument(genericType, 0);
+            Class<?> elementClass = rawType(elementType);
+            int length = array.length();
+            Collection<Object> result = Set.class.isAssignableFrom(type)
+                    ? new LinkedHashSet<>(length * 2) : new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                result.add(read(array.opt(i), elementClass, elementType));
+            }
+            return result;
+        } else if (Map.class.isAssignableFrom(type) && value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            Type valueType = typeArgument(genericType, 1);
+            Class<?> valueClass = rawType(valueType);
+            Map<String, Object> result = new LinkedHashMap<>();
+            Iterator<?> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                result.put(key, read(object.opt(key), valueClass, valueType));
+            }
+            return result;
+        } else if (type == Date.class && (value instanceof String || value instanceof Number)) {
+            return readDate(value);
+        } else if (type == UUID.class && value instanceof String) {
+            try {
+                return UUID.fromString((String) value);
+            } catch (IllegalArgumentException e) {
+                throw new DecodingException("invalid UUID " + value);
+            }
+        } else if (type == URI.class && value instanceof String) {
+            try {
+                return URI.create((String) value);
+            } catch (IllegalArgumentException e) {
+                throw new DecodingException("invalid URI " + value);
+            }
+        } else if (value instanceof JSONObject && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())
+                && isBindable(type)) {
+            return of(type).readObject((JSONObject) value);
+        }
+        throw new DecodingException(String.format("cannot bind %s to %s",
+                value.getClass().getSimpleName(), type.getName()));
+    }
+
+    private T readObject(JSONObject object) {
+        if (this.constructor == null) {
+            throw new DecodingException(this.type.getName() + " has no no-argument constructor");
+        }
+        T instance;
+        try {
+            instance = this.constructor.newInstance();
+        } catch (Exception e) {
+            throw new DecodingException("cannot instantiate " + this.type.getName());
+        }
+        for (Property property : this.properties) {
+            Object value = object.opt(property.name);
+            if (value == null) continue;
+            Object converted = read(value, property.type, property.genericType);
+            if (converted == null && property.type.isPrimitive()) continue;
+            property.set(instance, converted);
+        }
+        return instance;
+    }
+
+    private static Object readNumber(Object value, Class<?> type) {
+        Number number;
+        if (value instanceof Number) {
+            number = (Number) value;
+        } else {
+            try {
+                number = Double.valueOf((String) value);
+            } catch (NumberFormatException e) {
+                throw new DecodingException(String.format("cannot bind %s to %s", value, type.getName()));
+            }
+        }
+        if (type == Integer.class) return number.intValue();
+        if (type == Long.class) return number.longValue();
+        if (type == Double.class) return number.doubleValue();
+        if (type == Float.class) return number.floatValue();
+        if (type == Short.class) return number.shortValue();
+        if (type == Byte.class) return number.byteValue();
+        if (type.isInstance(number)) return number;
+        throw new DecodingException("cannot bind a number to " + type.getName());
+    }
+
+    private static Date readDate(Object value) {
+        if (value instanceof Number) {
+            return new Date(((Number) value).longValue());
+        }
+        try {
+            return dateFormat().parse((String) value);
+        } catch (ParseException e) {
+            throw new DecodingException("invalid date " + value);
+        }
+    }
+
+    private static String formatDate(Date date) {
+        return dateFormat().format(date);
+    }
+
+    private static DateFormat dateFormat() {
+        // the output of Date.prototype.toISOString(); SimpleDateFormat is not thread-safe
+        DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readEnum(Class<?> type, String name) {
+        try {
+            return Enum.valueOf((Class<Enum>) type, name);
+        } catch (IllegalArgumentException e) {
+            throw new DecodingException(String.format("no constant %s in %s", name, type.getName()));
+        }
+    }
+
+    /**
+     * Converts a Java value to the org.json object model, for the encoders which do not write JSON text.
+     */
+    /*package*/ static Object toJSON(Object value) {
+        return toJSON(value, value != null ? value.getClass() : null);
+    }
+
+    /**
+     * @param type the class whose fields are converted, when the value is a plain object.
+     */
+    /*package*/ static Object toJSON(Object value, Class<?> type) {
+        if (value == null) {
+            return JSONObject.NULL;
+        } else if (value instanceof String || value instanceof Boolean || value instanceof Number
+                || value instanceof byte[] || value instanceof JSONArray || value instanceof JSONObject) {
+            return value;
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        } else if (value instanceof Character) {
+            return value.toString();
+        } else if (value instanceof ByteBuffer) {
+            return read(value, byte[].class);
+        } else if (value.getClass().isArray()) {
+            JSONArray array = new JSONArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                array.put(toJSON(Array.get(value, i)));
+            }
+            return array;
+        } else if (value instanceof Collection) {
+            JSONArray array = new JSONArray();
+            for (Object element : (Collection<?>) value) {
+                array.put(toJSON(element));
+            }
+            return array;
+        } else if (!(value instanceof Map) && !isBindable(value.getClass())) {
+            return toJSON(jdkValue(value));
+        }
+
+        JSONObject object = new JSONObject();
+        try {
+            if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    object.put(String.valueOf(entry.getKey()), toJSON(entry.getValue()));
+                }
+            } else {
+                for (Property property : of(isBindable(type) ? type : value.getClass()).properties) {
+                    object.put(property.name, toJSON(property.get(value)));
+                }
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return object;
+    }
+
+    /**
+     * Estimates the size of the value once encoded, in bytes, without encoding it: strings are counted as one byte
+     * per character and numbers as eight bytes, like the other arguments buffered by a socket.
+     *
+     * @param type the class whose fields are counted, when the value is a plain object.
+     */
+    /*package*/ static long estimateSize(Object value, Class<?> type) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            return 4;
+        } else if (value instanceof String) {
+            return ((String) value).length() + 2;
+        } else if (value instanceof Number) {
+            return 8;
+        } else if (value instanceof Boolean) {
+            return 5;
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name().length() + 2;
+        } else if (value instanceof Character) {
+            return 3;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof ByteBuffer) {
+            return ((ByteBuffer) value).remaining();
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            long size = 2 + array.length();
+            for (int i = 0; i < array.length(); i++) {
+                size += estimateSize(array.opt(i));
+            }
+            return size;
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            long size = 2;
+            Iterator<?> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                size += key.length() + 4 + estimateSize(object.opt(key));
+            }
+            return size;
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            long size = 2 + length;
+            for (int i = 0; i < length; i++) {
+                size += estimateSize(Array.get(value, i));
+            }
+            return size;
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            long size = 2 + collection.size();
+            for (Object element : collection) {
+                size += estimateSize(element);
+            }
+            return size;
+        } else if (value instanceof Map) {
+            long size = 2;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + 4 + estimateSize(entry.getValue());
+            }
+            return size;
+        } else if (!isBindable(value.getClass())) {
+            return estimateSize(jdkValue(value));
+        }
+
+        long size = 2;
+        for (Property property : of(isBindable(type) ? type : value.getClass()).properties) {
+            size += property.name.length() + 4 + estimateSize(property.get(value));
+        }
+        return size;
+    }
+
+    private static long estimateSize(Object value) {
+        return estimateSize(value, value != null ? value.getClass() : null);
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return type;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) return arguments[index];
+        }
+        return Object.class;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) return (Class<?>) type;
+        if (type instanceof ParameterizedType) return (Class<?>) ((ParameterizedType) type).getRawType();
+        return Object.class;
+    }
+
+    /*package*/ static final class Property {
+
+        /*package*/ final String name;
+        private final Field field;
+        private final Class<?> type;
+        private final Type genericType;
+
+        private Property(Field field) {
+            this.name = field.getName();
+            this.field = field;
+            this.type = field.getType();
+            this.genericType = field.getGenericType();
+        }
+
+        /*package*/ Object get(Object instance) {
+            try {
+                return this.field.get(instance);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void set(Object instance, Object value) {
+            try {
+                this.field.set(instance, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The default {@link JsonCodec}, backed by the org.json library.
+ */
+public class OrgJsonCodec implements JsonCodec {
+
+    private static final Logger logger = Logger.getLogger(OrgJsonCodec.class.getName());
+
+    /*package*/ static final OrgJsonCodec INSTANCE = new OrgJsonCodec();
+
+    public OrgJsonCodec() {}
+
+    @Override
+    public Object decode(String text, int offset) {
+        // skipping on a StringReader does not copy the remaining characters
+        StringReader reader = new StringReader(text);
+        try {
+            reader.skip(offset);
+            return new JSONTokener(reader).nextValue();
+        } catch (IOException | JSONException e) {
+            logger.log(Level.WARNING, "An error occured while retrieving data from JSONTokener", e);
+            throw new DecodingException("invalid payload");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>org.json has no streaming binding: the value is parsed into the org.json object model, which is then
+     * bound to the type. A codec backed by a streaming engine can bind the text directly.</p>
+     */
+    @Override
+    public <T> T decode(String text, int offset, Class<T> type) {
+        return this.convert(this.decode(text, offset), type);
+    }
+
+    @Override
+    public <T> T convert(Object value, Class<T> type) {
+        return ObjectBinding.read(value, type);
+    }
+
+    @Override
+    public void encode(Object data, StringBuilder out, List<byte[]> attachments) {
+        write(data, out, attachments);
+    }
+
+    private static void write(Object value, StringBuilder out, List<byte[]> attachments) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            out.append("null");
+        } else if (value instanceof String) {
+            quote((String) value, out);
+        } else if (value instanceof Boolean) {
+            out.append(((Boolean) value).booleanValue());
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            out.append(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            try {
+                out.append(JSONObject.numberToString((Number) value));
+            } catch (JSONException e) {
+                // non-finite numbers have no JSON representation
+                out.append("null");
+            }
+        } else if (value instanceof byte[]) {
+            out.append("{\"" + Binary.KEY_PLACEHOLDER + "\":true,\"" + Binary.KEY_NUM + "\":")
+                    .append(attachments.size())
+                    .append('}');
+            attachments.add((byte[]) value);
+        } else if (value instanceof ByteBuffer) {
+            // attachments received as ByteBuffer views, sent back as is
+            write(ObjectBinding.read(value, byte[].class), out, attachments);
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            int length = array.length();
+            out.append('[');
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.append(',');
+                write(array.opt(i), out, attachments);
+            }
+            out.append(']');
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            Iterator<?> keys = object.keys();
+            out.append('{');
+            boolean first = true;
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                if (!first) out.append(',');
+                first = false;
+                quote(key, out);
+                out.append(':');
+                write(object.opt(key), out, attachments);
+            }
+            out.append('}');
+        } else if (value instanceof TypedValue) {
+            TypedValue typed = (TypedValue) value;
+            writeObject(typed.value(), typed.type(), out, attachments);
+        } else {
+            // maps, collections and JSONString instances are left to org.json
+            try {
+                out.append(new JSONArray().put(value).join(","));
+            } catch (JSONException e) {
+                logger.log(Level.WARNING, "An error occured while serializing data", e);
+                out.append("null");
+            }
+        }
+    }
+
+    /**
+     * Writes a value bound with {@link ObjectBinding}: plain objects, arrays, collections and maps are written
+     * from their content, instead of their {@code toString()} representation.
+     */
+    private static void writeObject(Object value, StringBuilder out, List<byte[]> attachments) {
+        writeObject(value, value != null ? value.getClass() : null, out, attachments);
+    }
+
+    private static void writeObject(Object value, Class<?> type, StringBuilder out, List<byte[]> attachments) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Number
+                || value instanceof byte[] || value instanceof ByteBuffer || value instanceof JSONArray
+                || value instanceof JSONObject) {
+            write(value, out, attachments);
+        } else if (value instanceof Enum) {
+            quote(((Enum<?>) value).name(), out);
+        } else if (value instanceof Character) {
+            quote(value.toString(), out);
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            out.append('[');
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.append(',');
+                writeObject(Array.get(value, i), out, attachments);
+            }
+            out.append(']');
+        } else if (value instanceof Collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) out.append(',');
+                first = false;
+                writeObject(element, out, attachments);
+            }
+            out.append(']');
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) out.append(',');
+                first = false;
+                quote(String.valueOf(entry.getKey()), out);
+                out.append(':');
+                writeObject(entry.getValue(), out, attachments);
+            }
+            out.append('}');
+        } else if (!ObjectBinding.isBindable(value.getClass())) {
+            writeObject(ObjectBinding.jdkValue(value), out, attachments);
+        } else {
+            out.append('{');
+            boolean first = true;
+            // a value declared with a JDK type, like Object, is bound by its own class
+            Class<?> bound = ObjectBinding.isBindable(type) ? type : value.getClass();
+            for (ObjectBinding.Property property : ObjectBinding.of(bound).properties) {
+                if (!first) out.append(',');
+                first = false;
+                quote(property.name, out);
+                out.append(':');
+                writeObject(property.get(value), out, attachments);
+            }
+            out.append('}');
+        }
+    }
+
+    /**
+     * Same output as {@link JSONObject#quote(String)}, without the intermediate string.
+     */
+    private static void quote(String string, StringBuilder out) {
+        int length = string.length();
+        if (length == 0) {
+            out.append("\"\"");
+            return;
+        }
+
+        out.append('"');
+        char c = 0;
+        for (int i = 0; i < length; i++) {
+            char b = c;
+            c = string.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    out.append('\\').append(c);
+                    break;
+                case '/':
+                    if (b == '<') {
+                        out.append('\\');
+                    }
+                    out.append(c);
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                        out.append("\\u");
+                        String hex = Integer.toHexString(c);
+                        for (int j = hex.length(); j < 4; j++) {
+                            out.append('0');
+                        }
+                        out.append(hex);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    @Override
+    public Object reconstruct(Object data, List<?> attachments) {
+        return Binary.reconstruct(data, attachments);
+    }
+}
@@ -0,0 +1,114 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An event whose payload is serialized once, to be sent to many sockets.
+ *
+ * <p>{@link IOParser.Encoder} only prepends the packet type, the namespace and the ack id to the serialized
+ * payload, and the binary attachments are shared between all the packets. Without an ack, the frame is built once
+ * per namespace. Other encoders serialize {@link #data()} as usual.</p>
+ *
+ * <p>The arguments must not be modified once the event is prepared.</p>
+ */
+public final class PreparedEvent {
+
+    private final String event;
+    private final JSONArray data;
+    private final String prefix;
+    private final String body;
+    private final byte[][] attachments;
+    private final String rootFrame;
+    private final ConcurrentHashMap<String, String> frames = new ConcurrentHashMap<>();
+
+    /**
+     * @param event an event name.
+     * @param args data to send.
+     */
+    public PreparedEvent(String event, Object... args) {
+        this(null, event, args);
+    }
+
+    /**
+     * @param codec the codec used to serialize the payload, or {@code null} to use {@link OrgJsonCodec}.
+     * @param event an event name.
+     * @param args data to send.
+     */
+    public PreparedEvent(JsonCodec codec, String event, Object... args) {
+        JSONArray data = new JSONArray();
+        data.put(event);
+        if (args != null) {
+            for (Object arg : args) {
+                data.put(arg);
+            }
+        }
+
+        StringBuilder body = new StringBuilder();
+        List<byte[]> attachments = new ArrayList<>();
+        (codec != null ? codec : OrgJsonCodec.INSTANCE).encode(data, body, attachments);
+
+        this.event = event;
+        this.data = data;
+        this.body = body.toString();
+        this.attachments = attachments.toArray(new byte[attachments.size()][]);
+        this.prefix = attachments.isEmpty()
+                ? String.valueOf(Parser.EVENT)
+                : String.valueOf(Parser.BINARY_EVENT) + attachments.size() + "-";
+        this.rootFrame = this.prefix + this.body;
+    }
+
+    /**
+     * @return the event name.
+     */
+    public String event() {
+        return this.event;
+    }
+
+    /**
+     * @return the payload, the event name being the first element. It must not be modified.
+     */
+    public JSONArray data() {
+        return this.data;
+    }
+
+    /**
+     * Builds the frames of a packet carrying this event.
+     */
+    /*package*/ Object[] frames(String nsp, int id) {
+        boolean root = nsp == null || nsp.length() == 0 || "/".equals(nsp);
+        String frame;
+        if (id < 0) {
+            if (root) {
+                frame = this.rootFrame;
+            } else {
+                frame = this.frames.get(nsp);
+                if (frame == null) {
+                    frame = this.prefix + nsp + "," + this.body;
+                    this.frames.putIfAbsent(nsp, frame);
+                }
+            }
+        } else {
+            StringBuilder str = new StringBuilder(this.prefix.length() + (root ? 0 : nsp.length() + 1) + 11
+                    + this.body.length());
+            str.append(this.prefix);
+            if (!root) {
+                str.append(nsp).append(',');
+            }
+            frame = str.append(id).append(this.body).toString();
+        }
+
+        Object[] frames = new Object[this.attachments.length + 1];
+        frames[0] = frame;
+        System.arraycopy(this.attachments, 0, frames, 1, this.attachments.length);
+        return frames;
+    }
+
+    @Override
+    public String toString() {
+        return this.body;
+    }
+}
@@ -0,0 +1,62 @@
+package io.socket.parser;
+
+import org.json.JSONObject;
+import org.json.JSONString;
+
+/**
+ * An argument bound to a Java type, written by the encoder from the fields of the object instead of being
+ * converted to a {@link org.json.JSONObject} first.
+ *
+ * <p>All the non-static, non-transient fields of the class and of its superclasses are sent, under their own
+ * name. Fields may be primitives, strings, enums, byte arrays (sent as binary attachments), arrays, collections,
+ * maps with string keys, org.json values, dates (sent as ISO 8601 strings) or other plain objects. The other JDK
+ * types are sent as their {@code toString()}. The same rules apply when an argument is bound on reception, which
+ * also requires a no-argument constructor (possibly private).</p>
+ */
+public final class TypedValue implements JSONString {
+
+    private final Object value;
+    private final Class<?> type;
+
+    private TypedValue(Object value, Class<?> type) {
+        this.value = value;
+        this.type = type;
+    }
+
+    /**
+     * @param value the object to send.
+     * @param type the class whose fields are sent.
+     * @return the argument to pass to {@code emit}.
+     */
+    public static <T> TypedValue of(T value, Class<T> type) {
+        return new TypedValue(value, type);
+    }
+
+    public Object value() {
+        return this.value;
+    }
+
+    public Class<?> type() {
+        return this.type;
+    }
+
+    /**
+     * Estimates the size of the encoded value, in bytes, from the fields of the object, without encoding it.
+     *
+     * @return the estimated size.
+     */
+    public long estimatedSize() {
+        return ObjectBinding.estimateSize(this.value, this.type);
+    }
+
+    @Override
+    public String toJSONString() {
+        Object json = ObjectBinding.toJSON(this.value, this.type);
+        return json instanceof String ? JSONObject.quote((String) json) : json.toString();
+    }
+
+    @Override
+    public String toString() {
+        return this.toJSONString();
+    }
+}
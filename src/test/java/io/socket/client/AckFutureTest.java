@@ -0,0 +1,124 @@
+package io.socket.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class AckFutureTest {
+
+    @Test(timeout = 10000)
+    public void cancelRemovesBufferedPacket() throws InterruptedException, ExecutionException {
+        Manager manager = new Manager(URI.create("http://localhost"));
+        Socket socket = manager.socket("/");
+
+        AckFuture future = socket.emitWithAck("fetch", 60000, 1);
+        sync(manager);
+        assertThat(socket.sendBufferSize(), is(1));
+
+        assertThat(future.cancel(false), is(true));
+        sync(manager);
+
+        assertThat(socket.sendBufferSize(), is(0));
+        assertThat(future.isCancelled(), is(true));
+        try {
+            future.get();
+            fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void failOnTimeout() throws InterruptedException {
+        Manager manager = new Manager(URI.create("http://localhost"));
+        Socket socket = manager.socket("/");
+
+        AckFuture future = socket.emitWithAck("fetch", 50, 1);
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+        assertThat(socket.sendBufferSize(), is(0));
+    }
+
+    @Test(timeout = 10000)
+    public void failOnOverflow() throws InterruptedException {
+        for (BufferOverflowPolicy policy : new BufferOverflowPolicy[] {BufferOverflowPolicy.FAIL, BufferOverflowPolicy.BLOCK}) {
+            Manager.Options opts = new Manager.Options();
+            opts.maxBufferedPackets = 1;
+            opts.bufferOverflowPolicy = policy;
+            opts.bufferOverflowTimeout = 50;
+            Manager manager = new Manager(URI.create("http://localhost"), opts);
+            Socket socket = manager.socket("/", opts);
+
+            socket.emit("first", 1);
+            sync(manager);
+            AckFuture future = socket.emitWithAck("fetch", 60000, 1);
+
+            assertThat(future.isDone(), is(true));
+            try {
+                future.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+            assertThat(socket.sendBufferSize(), is(1));
+            assertThat(socket.overflowedEvents(), is(1L));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void runListenersWithExecutor() throws InterruptedException, ExecutionException, TimeoutException {
+        final CountDownLatch executed = new CountDownLatch(1);
+        final CountDownLatch listened = new CountDownLatch(1);
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executed.countDown();
+                command.run();
+            }
+        };
+        Manager manager = new Manager(URI.create("http://localhost"));
+        Socket socket = manager.socket("/");
+
+        AckFuture future = socket.emitWithAck("fetch", 60000, executor, 1);
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                listened.countDown();
+            }
+        });
+        future.ack().call("response");
+
+        assertThat(future.get(1, TimeUnit.SECONDS)[0], is((Object) "response"));
+        assertThat(executed.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(listened.await(1, TimeUnit.SECONDS), is(true));
+    }
+
+    private static void sync(Manager manager) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+}
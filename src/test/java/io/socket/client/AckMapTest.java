@@ -0,0 +1,94 @@
+package io.socket.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class AckMapTest {
+
+    @Test
+    public void putGetRemove() {
+        AckMap map = new AckMap();
+        Ack ack = ack();
+        map.put(3, ack);
+
+        assertThat(map.get(3), is(sameInstance(ack)));
+        assertThat(map.get(4), is(nullValue()));
+        assertThat(map.size(), is(1));
+        assertThat(map.remove(3), is(sameInstance(ack)));
+        assertThat(map.remove(3), is(nullValue()));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void growAndClear() {
+        AckMap map = new AckMap();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, ack());
+        }
+        assertThat(map.size(), is(1000));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(map.get(i) != null, is(true));
+        }
+
+        List<Ack> acks = map.clear();
+        assertThat(acks.size(), is(1000));
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.get(10), is(nullValue()));
+    }
+
+    @Test
+    public void keepCollidingEntriesReachable() {
+        AckMap map = new AckMap();
+        // same slot in the initial table
+        Ack a = ack(), b = ack(), c = ack();
+        map.put(1, a);
+        map.put(17, b);
+        map.put(33, c);
+
+        assertThat(map.remove(1), is(sameInstance(a)));
+        assertThat(map.get(17), is(sameInstance(b)));
+        assertThat(map.get(33), is(sameInstance(c)));
+        assertThat(map.remove(17), is(sameInstance(b)));
+        assertThat(map.get(33), is(sameInstance(c)));
+    }
+
+    @Test
+    public void behaveLikeHashMap() {
+        Random random = new Random(42);
+        AckMap map = new AckMap();
+        Map<Integer, Ack> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int id = random.nextInt(256);
+            if (random.nextBoolean()) {
+                Ack ack = ack();
+                map.put(id, ack);
+                expected.put(id, ack);
+            } else {
+                assertThat(map.remove(id), is(expected.remove(id)));
+            }
+            assertThat(map.size(), is(expected.size()));
+        }
+        for (int id = 0; id < 256; id++) {
+            assertThat(map.get(id), is(expected.get(id)));
+        }
+    }
+
+    private static Ack ack() {
+        return new Ack() {
+            @Override
+            public void call(Object... args) {}
+        };
+    }
+}
@@ -0,0 +1,181 @@
+package io.socket.client;
+
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class AckStatsTest {
+
+    @Test
+    public void bucketValuesWithinPrecision() {
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.index(value));
+            assertThat(highest >= value, is(true));
+            assertThat(highest - value <= value / 32, is(true));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.valueAtPercentile(99), is(0L));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        assertThat(histogram.count(), is(1000L));
+        assertThat(histogram.max(), is(TimeUnit.MICROSECONDS.toNanos(1000)));
+        assertWithin(histogram.valueAtPercentile(50), TimeUnit.MICROSECONDS.toNanos(500));
+        assertWithin(histogram.valueAtPercentile(99), TimeUnit.MICROSECONDS.toNanos(990));
+        assertThat(histogram.valueAtPercentile(100), is(histogram.max()));
+        assertWithin((long) histogram.mean(), TimeUnit.MICROSECONDS.toNanos(500));
+    }
+
+    @Test(timeout = 10000)
+    public void recordAckLatencyAndBadAcks() throws InterruptedException {
+        Manager manager = new Manager(URI.create("http://localhost"));
+        manager.reconnection(false);
+        Socket socket = manager.socket("/");
+        socket.open();
+
+        final CountDownLatch acked = new CountDownLatch(1);
+        socket.emit("fetch", new Object[] {1}, new Ack() {
+            @Override
+            public void call(Object... args) {
+                acked.countDown();
+            }
+        });
+        sync(manager);
+        Thread.sleep(10);
+
+        receiveAck(manager, 0);
+        receiveAck(manager, 0);
+        acked.await();
+
+        assertThat(socket.ackStats("fetch").latency().count(), is(1L));
+        assertThat(socket.ackStats("fetch").latency().max() >= TimeUnit.MILLISECONDS.toNanos(10), is(true));
+        assertThat(manager.ackStats("fetch").latency().count(), is(1L));
+        assertThat(socket.ackStats("other"), is(nullValue()));
+        assertThat(socket.badAcks(), is(1L));
+        assertThat(manager.badAcks(), is(1L));
+    }
+
+    @Test(timeout = 10000)
+    public void countTimeouts() throws InterruptedException {
+        Manager manager = new Manager(URI.create("http://localhost"));
+        Socket socket = manager.socket("/");
+
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        socket.emit("fetch", new Object[] {1}, new AckWithTimeout(50) {
+            @Override
+            public void onSuccess(Object... args) {}
+
+            @Override
+            public void onTimeout() {
+                timedOut.countDown();
+            }
+        });
+        timedOut.await();
+
+        assertThat(socket.ackStats("fetch").timeouts(), is(1L));
+        assertThat(socket.ackStats("fetch").latency().count(), is(0L));
+        assertThat(manager.ackStats().get("fetch").timeouts(), is(1L));
+    }
+
+    @Test(timeout = 10000)
+    public void countFailures() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.maxBufferedPackets = 1;
+        opts.bufferOverflowPolicy = BufferOverflowPolicy.DROP_OLDEST;
+        final Manager manager = new Manager(URI.create("http://localhost"), opts);
+        Socket socket = manager.socket("/", opts);
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.readyState = Manager.ReadyState.OPEN;
+            }
+        });
+        socket.open();
+
+        socket.emit("fetch", new Object[] {1}, ack());
+        // drops the first event
+        socket.emit("fetch", new Object[] {2}, ack());
+        sync(manager);
+        assertThat(socket.ackStats("fetch").failures(), is(1L));
+
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.emit(Manager.EVENT_CLOSE, "transport close");
+            }
+        });
+        sync(manager);
+
+        assertThat(socket.ackStats("fetch").failures(), is(2L));
+        assertThat(manager.ackStats("fetch").failures(), is(2L));
+        assertThat(socket.ackStats("fetch").timeouts(), is(0L));
+    }
+
+    @Test(timeout = 10000)
+    public void capEventNames() throws InterruptedException {
+        Manager manager = new Manager(URI.create("http://localhost"));
+        Socket socket = manager.socket("/");
+
+        for (int i = 0; i < AckStats.MAX_EVENTS + 10; i++) {
+            socket.emit("event" + i, new Object[] {i}, ack());
+        }
+        sync(manager);
+
+        assertThat(socket.ackStats().size(), is(AckStats.MAX_EVENTS + 1));
+        assertThat(socket.ackStats("event" + (AckStats.MAX_EVENTS - 1)) != null, is(true));
+        assertThat(socket.ackStats("event" + AckStats.MAX_EVENTS), is(nullValue()));
+        assertThat(manager.ackStats().size(), is(AckStats.MAX_EVENTS + 1));
+    }
+
+    private static Ack ack() {
+        return new Ack() {
+            @Override
+            public void call(Object... args) {}
+        };
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertThat(String.valueOf(actual), Math.abs(actual - expected) <= expected / 32, is(true));
+    }
+
+    private static void receiveAck(final Manager manager, int id) throws InterruptedException {
+        final Packet<JSONArray> packet = new Packet<>(Parser.ACK, new JSONArray());
+        packet.nsp = "/";
+        packet.id = id;
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.emit(Manager.EVENT_PACKET, packet);
+            }
+        });
+        sync(manager);
+    }
+
+    private static void sync(Manager manager) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+}
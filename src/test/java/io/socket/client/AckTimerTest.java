@@ -0,0 +1,139 @@
+package io.socket.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class AckTimerTest {
+
+    @Test(timeout = 10000)
+    public void runAfterDelay() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        AckTimer.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 100);
+
+        latch.await();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100, is(true));
+    }
+
+    @Test(timeout = 10000)
+    public void runManyTimeoutsOnOneThread() throws InterruptedException {
+        final int count = 10000;
+        final CountDownLatch latch = new CountDownLatch(count);
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        final String[] threadName = new String[1];
+
+        for (int i = 0; i < count; i++) {
+            AckTimer.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    threadName[0] = Thread.currentThread().getName();
+                    latch.countDown();
+                }
+            }, i % 50);
+            AckTimer.Timeout cancelled = AckTimer.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    cancelledRuns.incrementAndGet();
+                }
+            }, i % 50);
+            assertThat(cancelled.cancel(), is(true));
+        }
+
+        latch.await();
+        Thread.sleep(100);
+        assertThat(cancelledRuns.get(), is(0));
+        assertThat(threadName[0], is("socket.io-ack-timer"));
+    }
+
+    @Test(timeout = 10000)
+    public void parkWhenIdle() throws InterruptedException {
+        AckTimer timer = new AckTimer();
+        final CountDownLatch first = new CountDownLatch(1);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                first.countDown();
+            }
+        }, 10);
+        first.await();
+
+        // no timeout left: the thread waits for the next one instead of ticking
+        while (!timer.isIdle()) {
+            Thread.sleep(10);
+        }
+
+        final CountDownLatch second = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                second.countDown();
+            }
+        }, 50);
+        assertThat(timer.isIdle(), is(false));
+        second.await();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50, is(true));
+    }
+
+    @Test(timeout = 10000)
+    public void keepOnSuccessAndOnTimeoutContract() throws InterruptedException {
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final AckWithTimeout expiring = new AckWithTimeout(50) {
+            @Override
+            public void onSuccess(Object... args) {
+                calls.incrementAndGet();
+            }
+
+            @Override
+            public void onTimeout() {
+                timedOut.countDown();
+            }
+        };
+        expiring.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                expiring.onTimeout();
+            }
+        });
+
+        final AckWithTimeout acknowledged = new AckWithTimeout(50) {
+            @Override
+            public void onSuccess(Object... args) {
+                calls.incrementAndGet();
+            }
+
+            @Override
+            public void onTimeout() {
+                calls.addAndGet(100);
+            }
+        };
+        acknowledged.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                acknowledged.onTimeout();
+            }
+        });
+        acknowledged.call();
+
+        timedOut.await();
+        Thread.sleep(100);
+        assertThat(calls.get(), is(1));
+    }
+}
@@ -0,0 +1,108 @@
+package io.socket.client;
+
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class FairQueueTest {
+
+    @Test
+    public void alternateBetweenNamespaces() {
+        FairQueue queue = new FairQueue(new ConcurrentHashMap<String, FairQueue.Share>());
+        for (int i = 0; i < 3; i++) {
+            queue.add(packet("/bulk", "bulk" + i), FairQueue.QUANTUM);
+        }
+        queue.add(packet("/control", "control0"), 10);
+        queue.add(packet("/control", "control1"), 10);
+
+        assertThat(drain(queue).toString(), is("[bulk0, control0, control1, bulk1, bulk2]"));
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void shareByWeight() {
+        ConcurrentMap<String, FairQueue.Share> shares = new ConcurrentHashMap<>();
+        FairQueue.share(shares, "/a").weight = 3;
+        FairQueue queue = new FairQueue(shares);
+        for (int i = 0; i < 4; i++) {
+            queue.add(packet("/a", "a" + i), FairQueue.QUANTUM);
+            queue.add(packet("/b", "b" + i), FairQueue.QUANTUM);
+        }
+        assertThat(shares.get("/a").depth.get(), is(4));
+
+        assertThat(drain(queue).toString(), is("[a0, a1, a2, b0, a3, b1, b2, b3]"));
+        assertThat(shares.get("/a").depth.get(), is(0));
+    }
+
+    @Test
+    public void keepOrderOfLargePackets() {
+        FairQueue queue = new FairQueue(new ConcurrentHashMap<String, FairQueue.Share>());
+        queue.add(packet("/", "large"), FairQueue.QUANTUM * 5L);
+        queue.add(packet("/", "small"), 1);
+
+        assertThat(drain(queue).toString(), is("[large, small]"));
+    }
+
+    @Test(timeout = 10000)
+    public void lightNamespaceOvertakesHeavyBacklog() {
+        Manager.Options opts = new Manager.Options();
+        opts.writeBatchBytes = 2 * 8000;
+        opts.encoder = new Parser.Encoder() {
+            @Override
+            public void encode(Packet obj, Callback callback) {
+                callback.call(new Object[] {obj.data});
+            }
+        };
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        final List<String> frames = new ArrayList<>();
+        manager.engine = new io.socket.engineio.client.Socket() {
+            @Override
+            public void write(String msg) {
+                frames.add(msg.substring(0, msg.indexOf(' ')));
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            manager.packet(packet("/heavy", "heavy" + i + " " + new String(new char[8000])), Priority.NORMAL);
+        }
+        manager.packet(packet("/light", "light "), Priority.NORMAL);
+        // the first batch was written before the light namespace had anything to send
+        assertThat(frames.toString(), is("[heavy0, heavy1]"));
+        assertThat(manager.queuedPackets("/heavy"), is(8));
+
+        manager.ondrain();
+
+        assertThat(frames.toString(), is("[heavy0, heavy1, heavy2, light, heavy3]"));
+        assertThat(manager.queuedPackets("/light"), is(0));
+        assertThat(manager.queuedPackets("/heavy"), is(6));
+    }
+
+    private static Packet<String> packet(String nsp, String data) {
+        Packet<String> packet = new Packet<>(Parser.EVENT, data);
+        packet.nsp = nsp;
+        return packet;
+    }
+
+    private static List<Object> drain(FairQueue queue) {
+        List<Object> data = new ArrayList<>();
+        FairQueue.Entry entry;
+        while ((entry = queue.poll()) != null) {
+            data.add(entry.packet.data);
+        }
+        return data;
+    }
+}
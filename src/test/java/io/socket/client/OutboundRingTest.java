@@ -0,0 +1,147 @@
+package io.socket.client;
+
+import io.socket.thread.EventThread;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class OutboundRingTest {
+
+    @Test(timeout = 10000)
+    public void runTasksOnEventThreadInOrder() throws InterruptedException {
+        final int producers = 4;
+        final int tasks = 10000;
+        // smaller than the number of tasks, so that the producers overflow
+        final OutboundRing ring = new OutboundRing(64);
+        final List<List<Integer>> received = new ArrayList<>();
+        final AtomicBoolean offThread = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(producers * tasks);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final List<Integer> values = new ArrayList<>();
+            received.add(values);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < tasks; i++) {
+                        final int value = i;
+                        ring.exec(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!EventThread.isCurrent()) offThread.set(true);
+                                values.add(value);
+                                done.countDown();
+                            }
+                        });
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        done.await();
+
+        assertThat(offThread.get(), is(false));
+        for (List<Integer> values : received) {
+            assertThat(values.size(), is(tasks));
+            for (int i = 0; i < tasks; i++) {
+                assertThat(values.get(i), is(i));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void doNotWaitForBlockedEventThread() throws InterruptedException {
+        final OutboundRing ring = new OutboundRing(4);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        EventThread.exec(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        blocked.await();
+
+        final List<Integer> values = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(100);
+        // more tasks than slots, while the event thread is blocked
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            ring.exec(new Runnable() {
+                @Override
+                public void run() {
+                    values.add(value);
+                    done.countDown();
+                }
+            });
+        }
+        release.countDown();
+        done.await();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(values.get(i), is(i));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void runTasksInlineOnEventThread() throws InterruptedException {
+        final OutboundRing ring = new OutboundRing();
+        final List<String> calls = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        EventThread.exec(new Runnable() {
+            @Override
+            public void run() {
+                ring.exec(new Runnable() {
+                    @Override
+                    public void run() {
+                        calls.add("task");
+                    }
+                });
+                calls.add("after");
+                done.countDown();
+            }
+        });
+        done.await();
+
+        assertThat(calls.get(0), is("task"));
+        assertThat(calls.get(1), is("after"));
+    }
+
+    @Test(timeout = 10000)
+    public void keepDrainingAfterFailure() throws InterruptedException {
+        final OutboundRing ring = new OutboundRing(4);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        ring.exec(new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException("test");
+            }
+        });
+        ring.exec(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+    }
+}
@@ -0,0 +1,270 @@
+package io.socket.client;
+
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class PacketQueueTest {
+
+    private static final int PACKETS = 100000;
+
+    @Test(timeout = 10000)
+    public void drainBurstFromSynchronousEncoder() {
+        final Manager[] manager = new Manager[1];
+        Manager.Options opts = new Manager.Options();
+        opts.encoder = new Parser.Encoder() {
+            private boolean first = true;
+
+            @Override
+            public void encode(Packet obj, Callback callback) {
+                if (this.first) {
+                    // packets emitted while the first one is being encoded
+                    this.first = false;
+                    for (int i = 1; i < PACKETS; i++) {
+                        manager[0].packet(new Packet<>(Parser.EVENT, i));
+                    }
+                }
+                callback.call(new Object[] {String.valueOf(obj.data)});
+            }
+        };
+        manager[0] = new Manager(URI.create("http://localhost"), opts);
+        List<String> frames = capture(manager[0]);
+
+        manager[0].packet(new Packet<>(Parser.EVENT, 0));
+        // a batch is written at once, the next ones once the engine is drained
+        assertThat(frames.size() > 1 && frames.size() < PACKETS, is(true));
+        while (frames.size() < PACKETS) {
+            int written = frames.size();
+            manager[0].ondrain();
+            assertThat(frames.size() > written, is(true));
+        }
+
+        assertThat(frames.size(), is(PACKETS));
+        for (int i = 0; i < PACKETS; i++) {
+            assertThat(frames.get(i), is(String.valueOf(i)));
+        }
+        assertThat(manager[0].bufferedAmount() > 0, is(true));
+    }
+
+    @Test(timeout = 10000)
+    public void resumeAfterAsynchronousEncoder() {
+        final List<Object[]> results = new ArrayList<>();
+        final List<Parser.Encoder.Callback> callbacks = new ArrayList<>();
+        Manager.Options opts = new Manager.Options();
+        opts.encoder = new Parser.Encoder() {
+            @Override
+            public void encode(Packet obj, Callback callback) {
+                results.add(new Object[] {String.valueOf(obj.data)});
+                callbacks.add(callback);
+            }
+        };
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        List<String> frames = capture(manager);
+
+        for (int i = 0; i < 3; i++) {
+            manager.packet(new Packet<>(Parser.EVENT, i));
+        }
+        // the next packets wait for the first encoding
+        assertThat(callbacks.size(), is(1));
+
+        callbacks.get(0).call(results.get(0));
+        manager.ondrain();
+        for (int i = 1; i < 3; i++) {
+            callbacks.get(i).call(results.get(i));
+        }
+        assertThat(frames.size(), is(3));
+        assertThat(frames.get(2), is("2"));
+    }
+
+    @Test(timeout = 10000)
+    public void writeByPriorityOnceDrained() {
+        Manager.Options opts = new Manager.Options();
+        opts.writeBatchBytes = 1;
+        opts.encoder = new Parser.Encoder() {
+            @Override
+            public void encode(Packet obj, Callback callback) {
+                callback.call(new Object[] {String.valueOf(obj.data)});
+            }
+        };
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        List<String> frames = capture(manager);
+
+        manager.packet(new Packet<>(Parser.EVENT, "first"), Priority.BULK);
+        // the engine is busy
+        manager.packet(new Packet<>(Parser.EVENT, "bulk1"), Priority.BULK);
+        manager.packet(new Packet<>(Parser.EVENT, "normal"), Priority.NORMAL);
+        manager.packet(new Packet<>(Parser.EVENT, "bulk2"), Priority.BULK);
+        manager.packet(new Packet<>(Parser.ACK, "ack"), Priority.ACK);
+        manager.packet(new Packet<>(Parser.CONNECT, "connect"), Priority.CONTROL);
+        assertThat(frames.size(), is(2));
+
+        // one packet per drain
+        for (int i = 0; i < 4; i++) {
+            manager.ondrain();
+        }
+
+        assertThat(frames.toString(), is("[first, connect, ack, normal, bulk1, bulk2]"));
+    }
+
+    @Test(timeout = 10000)
+    public void writeOneBatchPerDrain() {
+        Manager.Options opts = new Manager.Options();
+        opts.writeBatchBytes = 10;
+        opts.encoder = new Parser.Encoder() {
+            @Override
+            public void encode(Packet obj, Callback callback) {
+                callback.call(new Object[] {String.valueOf(obj.data)});
+            }
+        };
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        List<String> frames = capture(manager);
+
+        manager.packet(new Packet<>(Parser.EVENT, "first-batch"), Priority.BULK);
+        for (int i = 0; i < 6; i++) {
+            manager.packet(new Packet<>(Parser.EVENT, "bulk" + i), Priority.BULK);
+        }
+        assertThat(frames.toString(), is("[first-batch]"));
+
+        manager.ondrain();
+        assertThat(frames.toString(), is("[first-batch, bulk0, bulk1]"));
+
+        // the acknowledgement does not wait for the whole backlog
+        manager.packet(new Packet<>(Parser.ACK, "ack"), Priority.ACK);
+        manager.ondrain();
+        assertThat(frames.toString(), is("[first-batch, bulk0, bulk1, ack, bulk2, bulk3]"));
+
+        manager.ondrain();
+        assertThat(frames.toString(), is("[first-batch, bulk0, bulk1, ack, bulk2, bulk3, bulk4, bulk5]"));
+    }
+
+    @Test(timeout = 10000)
+    public void writeHeldPacketsBeforeClosing() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.writeBatchBytes = 1;
+        final Manager manager = new Manager(URI.create("http://localhost"), opts);
+        final List<String> frames = new ArrayList<>();
+        final int[] closedAfter = {-1};
+        manager.engine = new io.socket.engineio.client.Socket() {
+            @Override
+            public void write(String msg) {
+                frames.add(msg);
+            }
+
+            @Override
+            public io.socket.engineio.client.Socket close() {
+                closedAfter[0] = frames.size();
+                return this;
+            }
+        };
+        final Socket socket = manager.socket("/");
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.readyState = Manager.ReadyState.OPEN;
+            }
+        });
+        socket.open();
+        Packet<JSONObject> connect = new Packet<>(Parser.CONNECT, new JSONObject(Collections.singletonMap("sid", "abc")));
+        connect.nsp = "/";
+        receive(manager, connect);
+        manager.ondrain();
+        sync(manager);
+        assertThat(socket.connected(), is(true));
+
+        socket.emit("a", 1);
+        // held until the engine is drained
+        socket.emit("b", 2);
+        socket.close();
+        sync(manager);
+
+        assertThat(frames.size(), is(4));
+        assertThat(frames.get(1), is("2[\"a\",1]"));
+        assertThat(frames.get(2), is("2[\"b\",2]"));
+        assertThat(frames.get(3), is("1"));
+        assertThat(closedAfter[0], is(4));
+    }
+
+    @Test(timeout = 10000)
+    public void writeDisconnectionBeforeOtherNamespaces() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.writeBatchBytes = 1;
+        final Manager manager = new Manager(URI.create("http://localhost"), opts);
+        List<String> frames = capture(manager);
+        Socket socket = manager.socket("/");
+        Socket bulk = manager.socket("/bulk");
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.readyState = Manager.ReadyState.OPEN;
+            }
+        });
+        socket.open();
+        bulk.open();
+        for (String nsp : new String[] {"/", "/bulk"}) {
+            Packet<JSONObject> connect = new Packet<>(Parser.CONNECT, new JSONObject(Collections.singletonMap("sid", nsp)));
+            connect.nsp = nsp;
+            receive(manager, connect);
+        }
+        manager.ondrain();
+        sync(manager);
+        frames.clear();
+
+        for (int i = 0; i < 10; i++) {
+            bulk.withPriority(Priority.BULK).emit("chunk", i);
+        }
+        // held behind the first chunk
+        socket.emit("a");
+        socket.close();
+        sync(manager);
+
+        assertThat(frames, is(Arrays.asList("2/bulk,[\"chunk\",0]", "2[\"a\"]", "1")));
+        assertThat(manager.queuedPackets("/bulk"), is(9));
+        assertThat(manager.queuedPackets("/"), is(0));
+    }
+
+    private static void receive(final Manager manager, final Packet<?> packet) throws InterruptedException {
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.emit(Manager.EVENT_PACKET, packet);
+            }
+        });
+        sync(manager);
+    }
+
+    private static void sync(Manager manager) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    private static List<String> capture(Manager manager) {
+        final List<String> frames = new ArrayList<>();
+        manager.engine = new io.socket.engineio.client.Socket() {
+            @Override
+            public void write(String msg) {
+                frames.add(msg);
+            }
+        };
+        return frames;
+    }
+}
@@ -0,0 +1,319 @@
+package io.socket.client;
+
+import io.socket.emitter.Emitter;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class SendBufferTest {
+
+    @Test(timeout = 10000)
+    public void dropOldest() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.maxBufferedPackets = 2;
+        opts.bufferOverflowPolicy = BufferOverflowPolicy.DROP_OLDEST;
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        Socket socket = manager.socket("/", opts);
+
+        final AtomicInteger timeouts = new AtomicInteger();
+        socket.emit("first", new Object[] {1}, new AckWithTimeout(60000) {
+            @Override
+            public void onSuccess(Object... args) {}
+
+            @Override
+            public void onTimeout() {
+                timeouts.incrementAndGet();
+            }
+        });
+        socket.emit("second", 2);
+        socket.emit("third", 3);
+        sync(manager);
+
+        assertThat(socket.sendBufferSize(), is(2));
+        assertThat(socket.overflowedEvents(), is(1L));
+        assertThat(timeouts.get(), is(1));
+    }
+
+    @Test(timeout = 10000)
+    public void dropNewest() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.maxBufferedBytes = 100;
+        opts.bufferOverflowPolicy = BufferOverflowPolicy.DROP_NEWEST;
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        Socket socket = manager.socket("/", opts);
+
+        socket.emit("small", "a");
+        sync(manager);
+        long bytes = socket.sendBufferBytes();
+        assertThat(bytes > 0, is(true));
+
+        socket.emit("large", new String(new char[200]));
+        sync(manager);
+
+        assertThat(socket.sendBufferSize(), is(1));
+        assertThat(socket.sendBufferBytes(), is(bytes));
+        assertThat(socket.overflowedEvents(), is(1L));
+    }
+
+    @Test(timeout = 10000)
+    public void failFast() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.maxBufferedPackets = 1;
+        opts.bufferOverflowPolicy = BufferOverflowPolicy.FAIL;
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        Socket socket = manager.socket("/", opts);
+
+        socket.emit("first", 1);
+        sync(manager);
+        try {
+            socket.emit("second", 2);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertThat(socket.sendBufferSize(), is(1));
+        assertThat(socket.overflowedEvents(), is(1L));
+    }
+
+    @Test(timeout = 10000)
+    public void blockUntilTimeout() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.maxBufferedPackets = 1;
+        opts.bufferOverflowPolicy = BufferOverflowPolicy.BLOCK;
+        opts.bufferOverflowTimeout = 100;
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        Socket socket = manager.socket("/", opts);
+
+        socket.emit("first", 1);
+        sync(manager);
+        long start = System.nanoTime();
+        try {
+            socket.emit("second", 2);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100, is(true));
+        assertThat(socket.overflowedEvents(), is(1L));
+    }
+
+    @Test(timeout = 10000)
+    public void notWritableAboveHighWatermark() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.writeHighWatermark = 100;
+        opts.writeLowWatermark = 50;
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        Socket socket = manager.socket("/", opts);
+
+        socket.emit("small", "a");
+        sync(manager);
+        assertThat(socket.bufferedAmount(), is(socket.sendBufferBytes()));
+        assertThat(socket.isWritable(), is(true));
+
+        socket.emit("large", new String(new char[200]));
+        sync(manager);
+        assertThat(socket.bufferedAmount() > 100, is(true));
+        assertThat(socket.isWritable(), is(false));
+    }
+
+    @Test(timeout = 10000)
+    public void removeTimedOutPackets() throws InterruptedException {
+        Manager manager = new Manager(URI.create("http://localhost"));
+        Socket socket = manager.socket("/");
+
+        final int count = 5000;
+        final CountDownLatch timeouts = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            socket.emit("expiring", new Object[] {i}, new AckWithTimeout(50) {
+                @Override
+                public void onSuccess(Object... args) {}
+
+                @Override
+                public void onTimeout() {
+                    timeouts.countDown();
+                }
+            });
+            socket.emit("kept", i);
+        }
+        timeouts.await();
+        sync(manager);
+
+        assertThat(socket.sendBufferSize(), is(count));
+        assertThat(socket.overflowedEvents(), is(0L));
+    }
+
+    @Test(timeout = 10000)
+    public void dropOldestSkipsTimedOutPackets() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        opts.maxBufferedPackets = 2;
+        opts.bufferOverflowPolicy = BufferOverflowPolicy.DROP_OLDEST;
+        Manager manager = new Manager(URI.create("http://localhost"), opts);
+        Socket socket = manager.socket("/", opts);
+
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        socket.emit("expiring", new Object[] {1}, new AckWithTimeout(50) {
+            @Override
+            public void onSuccess(Object... args) {}
+
+            @Override
+            public void onTimeout() {
+                timedOut.countDown();
+            }
+        });
+        socket.emit("first", 1);
+        timedOut.await();
+        sync(manager);
+        assertThat(socket.sendBufferSize(), is(1));
+
+        socket.emit("second", 2);
+        socket.emit("third", 3);
+        sync(manager);
+
+        assertThat(socket.sendBufferSize(), is(2));
+        assertThat(socket.overflowedEvents(), is(1L));
+    }
+
+    @Test(timeout = 10000)
+    public void keepDrainEventLocal() throws InterruptedException {
+        final Manager manager = new Manager(URI.create("http://localhost"), new Manager.Options());
+        manager.engine = new io.socket.engineio.client.Socket() {
+            @Override
+            public void write(String msg) {}
+        };
+        Socket socket = manager.socket("/");
+        final List<String> received = new ArrayList<>();
+        socket.on(Socket.EVENT_DRAIN, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                received.add("drain");
+            }
+        });
+        socket.on("other", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                received.add("other");
+            }
+        });
+        connect(manager, socket);
+
+        try {
+            socket.emit(Socket.EVENT_DRAIN);
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        // a "drain" event sent by the server
+        Packet<JSONArray> drain = new Packet<>(Parser.EVENT, new JSONArray().put("drain"));
+        drain.nsp = "/";
+        receive(manager, drain);
+        Packet<JSONArray> other = new Packet<>(Parser.EVENT, new JSONArray().put("other"));
+        other.nsp = "/";
+        receive(manager, other);
+
+        assertThat(received, is((List<String>) Collections.singletonList("other")));
+    }
+
+    @Test(timeout = 10000)
+    public void dropAckedPacketsOnDisconnection() throws InterruptedException {
+        final Manager manager = new Manager(URI.create("http://localhost"), new Manager.Options());
+        final List<String> frames = new ArrayList<>();
+        manager.engine = new io.socket.engineio.client.Socket() {
+            @Override
+            public void write(String msg) {
+                frames.add(msg);
+            }
+        };
+        final Socket socket = manager.socket("/");
+        final AtomicInteger timeouts = new AtomicInteger();
+        socket.once(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                // buffered, since the socket is no longer connected
+                socket.emit("update", new Object[] {1}, new AckWithTimeout(50) {
+                    @Override
+                    public void onSuccess(Object... args) {}
+
+                    @Override
+                    public void onTimeout() {
+                        timeouts.incrementAndGet();
+                    }
+                });
+            }
+        });
+        connect(manager, socket);
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.emit(Manager.EVENT_CLOSE, "transport close");
+            }
+        });
+        sync(manager);
+        sync(manager);
+
+        // the acknowledgement has failed with the disconnection
+        assertThat(socket.sendBufferSize(), is(0));
+        assertThat(timeouts.get(), is(1));
+
+        Thread.sleep(100);
+        frames.clear();
+        Packet<JSONObject> connect = new Packet<>(Parser.CONNECT, new JSONObject(Collections.singletonMap("sid", "def")));
+        connect.nsp = "/";
+        receive(manager, connect);
+
+        assertThat(socket.connected(), is(true));
+        assertThat(frames.size(), is(0));
+        assertThat(timeouts.get(), is(1));
+    }
+
+    private static void connect(final Manager manager, Socket socket) throws InterruptedException {
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.readyState = Manager.ReadyState.OPEN;
+            }
+        });
+        socket.open();
+        Packet<JSONObject> connect = new Packet<>(Parser.CONNECT, new JSONObject(Collections.singletonMap("sid", "abc")));
+        connect.nsp = "/";
+        receive(manager, connect);
+    }
+
+    private static void receive(final Manager manager, final Packet<?> packet) throws InterruptedException {
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                manager.emit(Manager.EVENT_PACKET, packet);
+            }
+        });
+        sync(manager);
+    }
+
+    private static void sync(Manager manager) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        manager.exec(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+}
@@ -1,6 +1,7 @@
 package io.socket.client;
 
 import io.socket.emitter.Emitter;
+import io.socket.parser.TypedValue;
 import io.socket.util.Optional;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -450,4 +451,96 @@ public class SocketTest extends Connection {
         assertThat((String) values.take(), is("2"));
         assertThat((byte[]) values.take(), is(new byte[] { 3 }));
     }
+
+    static class Position {
+        String label;
+        int x;
+        byte[] data;
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldBindTypedArguments() throws InterruptedException {
+        final BlockingQueue<Position> values = new LinkedBlockingQueue<>();
+
+        socket = client();
+
+        Position position = new Position();
+        position.label = "player-1";
+        position.x = 12;
+        position.data = new byte[] { 3 };
+        socket.emit("echo", TypedValue.of(position, Position.class));
+
+        socket.on("echoBack", Position.class, new TypedListener<Position>() {
+            @Override
+            public void call(Position arg, Ack ack) {
+                values.offer(arg);
+            }
+        });
+
+        socket.connect();
+
+        Position echoed = values.take();
+        assertThat(echoed.label, is("player-1"));
+        assertThat(echoed.x, is(12));
+        assertThat(echoed.data, is(new byte[] { 3 }));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldSendCorkedPacketsInOrder() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+
+        socket = client();
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.cork();
+                for (int i = 0; i < 3; i++) {
+                    socket.emit("echo", i);
+                }
+                socket.batch(new Runnable() {
+                    @Override
+                    public void run() {
+                        socket.emit("echo", 3);
+                        socket.emit("echo", 4);
+                    }
+                });
+                socket.uncork();
+            }
+        });
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat((Integer) values.take(), is(i));
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldDropVolatileEventsWhenDisconnected() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+
+        socket = client();
+        socket.asVolatile().emit("echo", 1);
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.emit("echo", 2);
+            }
+        });
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+
+        assertThat((Integer) values.take(), is(2));
+        assertThat(socket.droppedVolatileEvents(), is(1L));
+    }
 }
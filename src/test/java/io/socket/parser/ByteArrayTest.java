@@ -6,12 +6,17 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
 public class ByteArrayTest {
@@ -73,6 +78,103 @@ public class ByteArrayTest {
         Helpers.testBin(packet);
     }
 
+    @Test
+    public void encodeLeavesPayloadUntouched() throws JSONException {
+        final byte[] bytes = new byte[] { 1, 2, 3 };
+        final JSONArray data = new JSONArray("[\"a\", {\"b\": \"c\"}]");
+        data.getJSONObject(1).put("bin", bytes);
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = data;
+        packet.id = 1;
+        packet.nsp = "/";
+
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                assertThat(encodedPackets.length, is(2));
+                assertThat((String) encodedPackets[0], startsWith("51-1["));
+                assertThat((byte[]) encodedPackets[1], is(bytes));
+            }
+        });
+
+        assertThat(packet.type, is(Parser.BINARY_EVENT));
+        assertThat(packet.attachments, is(1));
+        assertThat(packet.data, is(data));
+        assertThat(data.getJSONObject(1).get("bin"), is((Object) bytes));
+    }
+
+    @Test
+    public void decodeAsByteBuffer() throws JSONException {
+        final byte[] bytes = new byte[] { 1, 2, 3 };
+        JSONArray data = new JSONArray("[\"a\", {}, null]");
+        data.getJSONObject(1).put("bin", bytes);
+        data.put(2, "xxx".getBytes(StandardCharsets.UTF_8));
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = data;
+        packet.nsp = "/";
+
+        final List<Packet> packets = new ArrayList<>();
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.byteBufferAttachments = true;
+        final Parser.Decoder decoder = new IOParser.Decoder(opts);
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                decoder.add((String) encodedPackets[0]);
+                decoder.add((byte[]) encodedPackets[1]);
+                decoder.add((byte[]) encodedPackets[2]);
+            }
+        });
+
+        JSONArray decoded = (JSONArray) packets.get(0).data;
+        ByteBuffer bin = (ByteBuffer) decoded.getJSONObject(1).get("bin");
+        assertTrue(bin.isReadOnly());
+        assertThat(bin, is(ByteBuffer.wrap(bytes)));
+        assertThat((ByteBuffer) decoded.get(2), is(ByteBuffer.wrap("xxx".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void reEmitByteBufferAttachment() throws JSONException {
+        JSONArray received = new JSONArray();
+        received.put("a");
+        received.put(ByteBuffer.wrap(new byte[] { 0, 1, 2, 3 }, 1, 3).asReadOnlyBuffer());
+
+        // the decoded arguments sent back as an acknowledgement
+        Packet<JSONArray> packet = new Packet<>(Parser.ACK);
+        packet.data = received;
+        packet.id = 3;
+        packet.nsp = "/";
+
+        final List<Packet> packets = new ArrayList<>();
+        final Parser.Decoder decoder = new IOParser.Decoder();
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                assertThat(encodedPackets.length, is(2));
+                decoder.add((String) encodedPackets[0]);
+                decoder.add((byte[]) encodedPackets[1]);
+            }
+        });
+
+        assertThat(packets.get(0).type, is(Parser.BINARY_ACK));
+        JSONArray decoded = (JSONArray) packets.get(0).data;
+        assertThat((byte[]) decoded.get(1), is(new byte[] { 1, 2, 3 }));
+    }
+
     @Test
     public void cleanItselfUpOnClose() {
         JSONArray data = new JSONArray();
@@ -0,0 +1,136 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class DecodingLimitsTest {
+
+    private final List<Packet> packets = new ArrayList<>();
+
+    @Test
+    public void rejectLongTextFrames() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.maxTextLength = 10;
+        Parser.Decoder decoder = decoder(opts);
+
+        decoder.add("2[\"abcde\"]");
+        assertDecodingError(decoder, "2[\"abcdef\"]", "exceeds the limit of 10");
+        assertThat(this.packets.size(), is(1));
+    }
+
+    @Test
+    public void rejectLongBinaryHeadersAndSkipTheirFrames() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.maxTextLength = 50;
+        Parser.Decoder decoder = decoder(opts);
+
+        assertDecodingError(decoder, "52-[\"abcdefghij\",{\"_placeholder\":true,\"num\":0},{\"_placeholder\":true,\"num\":1}]",
+                "exceeds the limit of 50");
+        decoder.add(new byte[1]);
+        decoder.add(new byte[1]);
+        assertThat(this.packets.size(), is(0));
+
+        decoder.add("51-[\"a\",{\"_placeholder\":true,\"num\":0}]");
+        decoder.add(new byte[] { 7 });
+        assertThat(this.packets.size(), is(1));
+        assertThat((byte[]) ((JSONArray) this.packets.get(0).data).opt(1), is(new byte[] { 7 }));
+    }
+
+    @Test
+    public void rejectTooManyAttachmentsAndSkipTheirFrames() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.maxAttachments = 1;
+        Parser.Decoder decoder = decoder(opts);
+
+        assertDecodingError(decoder, "52-[\"a\",{\"_placeholder\":true,\"num\":0},{\"_placeholder\":true,\"num\":1}]",
+                "2 attachments exceeds the limit of 1");
+        decoder.add(new byte[1]);
+        decoder.add(new byte[1]);
+        assertThat(this.packets.size(), is(0));
+
+        decoder.add("51-[\"a\",{\"_placeholder\":true,\"num\":0}]");
+        decoder.add(new byte[] { 7 });
+        assertThat(this.packets.size(), is(1));
+        assertThat((byte[]) ((JSONArray) this.packets.get(0).data).opt(1), is(new byte[] { 7 }));
+    }
+
+    @Test
+    public void rejectLargeAttachmentsAndSkipTheirFrames() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.maxAttachmentBytes = 10;
+        Parser.Decoder decoder = decoder(opts);
+
+        decoder.add("53-[\"a\",{\"_placeholder\":true,\"num\":0},{\"_placeholder\":true,\"num\":1},"
+                + "{\"_placeholder\":true,\"num\":2}]");
+        decoder.add(new byte[6]);
+        try {
+            decoder.add(new byte[6]);
+            fail();
+        } catch (DecodingException e) {
+            assertThat(e.getMessage(), containsString("limit of 10 bytes"));
+        }
+        decoder.add(new byte[6]);
+        assertThat(this.packets.size(), is(0));
+
+        decoder.add("2[\"b\"]");
+        assertThat(this.packets.size(), is(1));
+    }
+
+    @Test
+    public void rejectDeepPayloads() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.maxJsonDepth = 3;
+        Parser.Decoder decoder = decoder(opts);
+
+        decoder.add("2[\"a\",{\"b\":[\"[[[{{{\"]}]");
+        assertDecodingError(decoder, "2[\"a\",{\"b\":[[1]]}]", "maximum depth of 3");
+        assertThat(this.packets.size(), is(1));
+    }
+
+    @Test
+    public void rejectDeepLazyPayloads() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.maxJsonDepth = 3;
+        opts.lazyEvents = true;
+        Parser.Decoder decoder = decoder(opts);
+
+        decoder.add("2[\"a\",{\"b\":[[1]]}]");
+        try {
+            ((LazyPayload) this.packets.get(0).data).decode();
+            fail();
+        } catch (DecodingException e) {
+            assertThat(e.getMessage(), containsString("maximum depth of 3"));
+        }
+    }
+
+    private Parser.Decoder decoder(IOParser.Decoder.Options opts) {
+        Parser.Decoder decoder = new IOParser.Decoder(opts);
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                DecodingLimitsTest.this.packets.add(packet);
+            }
+        });
+        return decoder;
+    }
+
+    private static void assertDecodingError(Parser.Decoder decoder, String str, String message) {
+        try {
+            decoder.add(str);
+            fail();
+        } catch (DecodingException e) {
+            assertThat(e.getMessage(), containsString(message));
+        }
+    }
+}
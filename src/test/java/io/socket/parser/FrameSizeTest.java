@@ -0,0 +1,41 @@
+package io.socket.parser;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class FrameSizeTest {
+
+    @Test
+    public void estimateFollowsRecentSizes() {
+        FrameSize frameSize = new FrameSize();
+        assertThat(frameSize.estimate(), is(64));
+
+        for (int i = 0; i < 100; i++) {
+            frameSize.record(1000);
+        }
+        assertTrue(frameSize.estimate() >= 1000);
+        assertTrue(frameSize.estimate() < 1500);
+    }
+
+    @Test
+    public void releaseOversizedBuffers() {
+        FrameSize frameSize = new FrameSize();
+        for (int i = 0; i < 100; i++) {
+            frameSize.record(100);
+        }
+        assertTrue(frameSize.retain(256));
+        assertFalse(frameSize.retain(1024 * 1024));
+
+        for (int i = 0; i < 100; i++) {
+            frameSize.record(4 * 1024 * 1024);
+        }
+        assertFalse(frameSize.retain(8 * 1024 * 1024));
+    }
+}
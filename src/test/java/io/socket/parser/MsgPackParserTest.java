@@ -0,0 +1,235 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class MsgPackParserTest {
+
+    private static Parser.Encoder encoder = new MsgPackParser.Encoder();
+
+    @Test
+    public void encodeConnection() throws JSONException {
+        Packet<JSONObject> packet = new Packet<>(Parser.CONNECT);
+        packet.data = new JSONObject("{\"token\": \"abcd\"}");
+        packet.nsp = "/woot";
+        test(packet);
+    }
+
+    @Test
+    public void encodeDisconnection() {
+        Packet packet = new Packet(Parser.DISCONNECT);
+        packet.nsp = "/woot";
+        test(packet);
+    }
+
+    @Test
+    public void encodeEvent() throws JSONException {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = new JSONArray("[\"a\", 1, -1, 300, -300, 70000, 5000000000, 1.5, true, null, {\"b\": [\"c\"]}]");
+        packet.nsp = "/";
+        test(packet);
+    }
+
+    @Test
+    public void encodeEventWithByteArray() throws JSONException {
+        JSONArray data = new JSONArray("[\"a\", {}]");
+        data.getJSONObject(1).put("bin", new byte[] { 1, 2, 3 });
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = data;
+        packet.id = 12;
+        packet.nsp = "/";
+
+        Packet decoded = roundTrip(packet);
+        assertThat(decoded.type, is(Parser.EVENT));
+        assertThat(decoded.id, is(12));
+        byte[] bin = (byte[]) ((JSONArray) decoded.data).getJSONObject(1).get("bin");
+        assertThat(bin, is(new byte[] { 1, 2, 3 }));
+        assertThat(decoded.attachments, is(0));
+    }
+
+    @Test
+    public void encodeEventWithByteBuffer() throws JSONException {
+        JSONArray data = new JSONArray("[\"a\"]");
+        data.put(ByteBuffer.wrap(new byte[] { 0, 1, 2, 3 }, 1, 3).asReadOnlyBuffer());
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = data;
+        packet.nsp = "/";
+
+        Packet decoded = roundTrip(packet);
+        assertThat((byte[]) ((JSONArray) decoded.data).get(1), is(new byte[] { 1, 2, 3 }));
+    }
+
+    @Test
+    public void encodeAck() throws JSONException {
+        Packet<JSONArray> packet = new Packet<>(Parser.ACK);
+        packet.data = new JSONArray("[\"a\", 1, {}]");
+        packet.id = 123;
+        packet.nsp = "/";
+        test(packet);
+    }
+
+    @Test
+    public void encodeLongStrings() throws JSONException {
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            str.append((char) ('a' + i % 26));
+        }
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = new JSONArray().put("a").put(str.toString()).put(str.substring(0, 300));
+        packet.nsp = "/";
+        test(packet);
+    }
+
+    @Test
+    public void encodeDate() {
+        Date date = new Date(1700000000123L);
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = new JSONArray().put("a").put(date);
+        packet.nsp = "/";
+
+        Packet decoded = roundTrip(packet);
+        assertThat(((JSONArray) decoded.data).opt(1), is((Object) date));
+    }
+
+    @Test
+    public void decodeEventFromJavaScript() throws JSONException {
+        // { type: 2, data: ["hello", { a: undefined, b: null }], nsp: "/", id: 1 } as encoded by notepack.io
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0x84);
+        writeString(bytes, "type");
+        bytes.write(0x02);
+        writeString(bytes, "data");
+        bytes.write(0x92);
+        writeString(bytes, "hello");
+        bytes.write(0x82);
+        writeString(bytes, "a");
+        bytes.write(0xd4);
+        bytes.write(0x00);
+        bytes.write(0x00);
+        writeString(bytes, "b");
+        bytes.write(0xc0);
+        writeString(bytes, "nsp");
+        writeString(bytes, "/");
+        writeString(bytes, "id");
+        bytes.write(0x01);
+
+        Packet packet = decode(bytes.toByteArray());
+        assertThat(packet.type, is(Parser.EVENT));
+        assertThat(packet.nsp, is("/"));
+        assertThat(packet.id, is(1));
+        JSONAssert.assertEquals(new JSONArray("[\"hello\", {\"b\": null}]"), (JSONArray) packet.data, true);
+    }
+
+    @Test
+    public void encodeAsJavaScript() {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = new JSONArray().put("hi");
+        packet.nsp = "/";
+
+        final List<Object[]> encoded = new ArrayList<>();
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                encoded.add(data);
+            }
+        });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0x83);
+        writeString(bytes, "type");
+        bytes.write(0x02);
+        writeString(bytes, "nsp");
+        writeString(bytes, "/");
+        writeString(bytes, "data");
+        bytes.write(0x91);
+        writeString(bytes, "hi");
+
+        assertThat(encoded.get(0).length, is(1));
+        assertThat((byte[]) encoded.get(0)[0], is(bytes.toByteArray()));
+    }
+
+    @Test
+    public void decodeInError() {
+        Parser.Decoder decoder = new MsgPackParser.Decoder();
+        try {
+            decoder.add("2[\"a\"]");
+            fail();
+        } catch (DecodingException e) {}
+
+        // truncated map
+        testDecodeError(new byte[] { (byte) 0x83 });
+        // not a map
+        testDecodeError(new byte[] { (byte) 0x90 });
+        // unknown type
+        testDecodeError(new byte[] { (byte) 0x82, (byte) 0xa4, 't', 'y', 'p', 'e', 0x09,
+                (byte) 0xa3, 'n', 's', 'p', (byte) 0xa1, '/' });
+        // missing namespace
+        testDecodeError(new byte[] { (byte) 0x81, (byte) 0xa4, 't', 'y', 'p', 'e', 0x01 });
+        // event without data
+        testDecodeError(new byte[] { (byte) 0x82, (byte) 0xa4, 't', 'y', 'p', 'e', 0x02,
+                (byte) 0xa3, 'n', 's', 'p', (byte) 0xa1, '/' });
+    }
+
+    private static void testDecodeError(byte[] data) {
+        try {
+            decode(data);
+            fail();
+        } catch (DecodingException e) {}
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.write(0xa0 | bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static Packet decode(byte[] data) {
+        final Packet[] result = new Packet[1];
+        Parser.Decoder decoder = new MsgPackParser.Decoder();
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                result[0] = packet;
+            }
+        });
+        decoder.add(data);
+        return result[0];
+    }
+
+    private static void test(Packet obj) {
+        Helpers.assertPacket(obj, roundTrip(obj));
+    }
+
+    private static Packet roundTrip(Packet obj) {
+        final Packet[] result = new Packet[1];
+        encoder.encode(obj, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                assertThat(encodedPackets.length, is(1));
+                result[0] = decode((byte[]) encodedPackets[0]);
+            }
+        });
+        assertThat(result[0], notNullValue());
+        return result[0];
+    }
+}
@@ -0,0 +1,65 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class OrgJsonCodecTest {
+
+    private static JsonCodec codec = new OrgJsonCodec();
+
+    @Test
+    public void encodeLikeOrgJson() throws JSONException {
+        JSONObject object = new JSONObject();
+        object.put("quote\"", "back\\slash");
+        object.put("html", "</script>");
+        object.put("controls", "\b\t\n\f\r\u0001\u0085 ");
+        object.put("unicode", "héllo 世界");
+        object.put("numbers", new JSONArray("[0, -1, 2147483648, 1.5, 2.0, 1e100]"));
+        object.put("null", JSONObject.NULL);
+        object.put("map", Collections.singletonMap("a", 1));
+
+        JSONArray array = new JSONArray();
+        array.put("event");
+        array.put(object);
+        array.put(true);
+        array.put("");
+
+        assertThat(encode(array), is(array.toString()));
+    }
+
+    @Test
+    public void encodeRandomStringsLikeOrgJson() {
+        Random random = new Random(42);
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < 1000; i++) {
+            char[] chars = new char[random.nextInt(10)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) random.nextInt(0x2200);
+            }
+            array.put(new String(chars));
+        }
+
+        assertThat(encode(array), is(array.toString()));
+    }
+
+    private static String encode(Object data) {
+        StringBuilder out = new StringBuilder();
+        List<byte[]> attachments = new ArrayList<>();
+        codec.encode(data, out, attachments);
+        assertThat(attachments.size(), is(0));
+        return out.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package io.socket.parser;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -8,6 +10,11 @@ import org.json.JSONException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
 
 @RunWith(JUnit4.class)
 public class ParserTest {
@@ -50,6 +57,118 @@ public class ParserTest {
         Helpers.test(packet);
     }
 
+    @Test
+    public void encodeEventWithNamespaceAndAck() throws JSONException {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = new JSONArray("[\"a\", 1, {}]");
+        packet.id = 42;
+        packet.nsp = "/woot";
+        Helpers.test(packet);
+    }
+
+    @Test
+    public void decodeReusesNamespace() {
+        final List<Packet> packets = new ArrayList<>();
+        Parser.Decoder decoder = new IOParser.Decoder();
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        decoder.add("2/woot,[\"a\"]");
+        decoder.add("2/woot,1[\"b\"]");
+
+        assertThat(packets.size(), is(2));
+        assertThat(packets.get(1).id, is(1));
+        assertSame(packets.get(0).nsp, packets.get(1).nsp);
+    }
+
+    @Test
+    public void encodeAndDecodeWithCustomCodec() throws JSONException {
+        final int[] calls = new int[2];
+        final JsonCodec codec = new OrgJsonCodec() {
+            @Override
+            public Object decode(String text, int offset) {
+                calls[0]++;
+                return super.decode(text, offset);
+            }
+
+            @Override
+            public void encode(Object data, StringBuilder out, List<byte[]> attachments) {
+                calls[1]++;
+                super.encode(data, out, attachments);
+            }
+        };
+
+        final Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = new JSONArray("[\"a\", 1, {}]");
+        packet.nsp = "/";
+
+        new IOParser.Encoder(codec).encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                Parser.Decoder decoder = new IOParser.Decoder(codec);
+                decoder.onDecoded(new Parser.Decoder.Callback() {
+                    @Override
+                    public void call(Packet decoded) {
+                        Helpers.assertPacket(decoded, packet);
+                    }
+                });
+                decoder.add((String) encodedPackets[0]);
+            }
+        });
+
+        assertThat(calls[0], is(1));
+        assertThat(calls[1], is(1));
+    }
+
+    @Test
+    public void decodeLazyEvent() throws JSONException {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.lazyEvents = true;
+        final List<Packet> packets = new ArrayList<>();
+        Parser.Decoder decoder = new IOParser.Decoder(opts);
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        decoder.add("2/woot,12[ \"a\" , 1, {}]");
+        decoder.add("2[\"b\"]");
+        decoder.add("2[\"c\\\"d\", 2]");
+
+        LazyPayload first = (LazyPayload) packets.get(0).data;
+        assertThat(packets.get(0).id, is(12));
+        assertThat(first.event(), is("a"));
+        JSONAssert.assertEquals(new JSONArray("[\"a\", 1, {}]"), first.decode(), true);
+
+        LazyPayload second = (LazyPayload) packets.get(1).data;
+        assertThat(second.event(), is("b"));
+        assertThat(second.decode().length(), is(1));
+
+        // escaped event names are parsed eagerly
+        assertThat(((JSONArray) packets.get(2).data).getString(0), is("c\"d"));
+    }
+
+    @Test(expected = DecodingException.class)
+    public void decodeLazyEventInError() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.lazyEvents = true;
+        final List<Packet> packets = new ArrayList<>();
+        Parser.Decoder decoder = new IOParser.Decoder(opts);
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        decoder.add("2[\"a\",1,{asdf}]");
+
+        ((LazyPayload) packets.get(0).data).decode();
+    }
+
     @Test
     public void decodeInError() throws JSONException {
         Logger logger = Logger.getLogger(IOParser.class.getName());
@@ -65,6 +184,8 @@ public class ParserTest {
         Helpers.testDecodeError(Parser.BINARY_ACK + "asdf");
         // Binary event with no attachment
         Helpers.testDecodeError(String.valueOf(Parser.BINARY_EVENT));
+        // Binary event with non numeric attachments
+        Helpers.testDecodeError(Parser.BINARY_EVENT + "a-[\"a\"]");
         // event non numeric id
         Helpers.testDecodeError(Parser.EVENT + "2sd");
         // event with invalid json data
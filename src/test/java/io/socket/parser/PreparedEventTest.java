@@ -0,0 +1,87 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class PreparedEventTest {
+
+    @Test
+    public void encodeLikeEncoder() throws JSONException {
+        JSONObject object = new JSONObject("{\"a\":[1,2,{\"b\":\"c\"}]}");
+        PreparedEvent event = new PreparedEvent("update", object, 1, "two");
+
+        for (String nsp : new String[] {"/", "/woot"}) {
+            for (int id : new int[] {-1, 0, 42}) {
+                Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("update").put(object).put(1).put("two"));
+                packet.nsp = nsp;
+                packet.id = id;
+                Packet<PreparedEvent> prepared = new Packet<>(Parser.EVENT, event);
+                prepared.nsp = nsp;
+                prepared.id = id;
+
+                assertThat(encode(new IOParser.Encoder(), prepared), is(encode(new IOParser.Encoder(), packet)));
+            }
+        }
+    }
+
+    @Test
+    public void encodeAttachmentsOnce() {
+        byte[] bytes = new byte[] {1, 2, 3};
+        PreparedEvent event = new PreparedEvent("image", bytes);
+
+        Packet<PreparedEvent> packet = new Packet<>(Parser.EVENT, event);
+        packet.nsp = "/woot";
+        packet.id = 3;
+        Object[] frames = encode(new IOParser.Encoder(), packet);
+
+        assertThat((String) frames[0], is("51-/woot,3[\"image\",{\"_placeholder\":true,\"num\":0}]"));
+        assertThat(frames[1], is((Object) bytes));
+    }
+
+    @Test
+    public void reuseFramesWithoutAck() {
+        PreparedEvent event = new PreparedEvent("update", 1);
+
+        Packet<PreparedEvent> first = new Packet<>(Parser.EVENT, event);
+        first.nsp = "/woot";
+        Packet<PreparedEvent> second = new Packet<>(Parser.EVENT, event);
+        second.nsp = "/woot";
+
+        assertThat(encode(new IOParser.Encoder(), first)[0], sameInstance(encode(new IOParser.Encoder(), second)[0]));
+    }
+
+    @Test
+    public void encodeWithMsgPack() {
+        PreparedEvent event = new PreparedEvent("update", 1, "two");
+        Packet<PreparedEvent> prepared = new Packet<>(Parser.EVENT, event);
+        prepared.nsp = "/";
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("update").put(1).put("two"));
+        packet.nsp = "/";
+
+        assertThat((byte[]) encode(new MsgPackParser.Encoder(), prepared)[0],
+                is((byte[]) encode(new MsgPackParser.Encoder(), packet)[0]));
+    }
+
+    private static Object[] encode(Parser.Encoder encoder, Packet packet) {
+        final List<Object[]> result = new ArrayList<>();
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                result.add(data);
+            }
+        });
+        return result.get(0);
+    }
+}
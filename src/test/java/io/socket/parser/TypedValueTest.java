@@ -0,0 +1,231 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class TypedValueTest {
+
+    private static JsonCodec codec = new OrgJsonCodec();
+
+    enum Kind { PLAYER, BOT }
+
+    static class Base {
+        String id;
+    }
+
+    static class Position extends Base {
+        int x;
+        double y;
+        Kind kind;
+        List<Position> children;
+        Map<String, Integer> scores;
+        transient String ignored = "ignored";
+
+        Position() {}
+
+        Position(String id, int x, double y, Kind kind) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.kind = kind;
+        }
+    }
+
+    static class Image {
+        String name;
+        byte[] data;
+    }
+
+    static class Event {
+        Date date;
+        UUID id;
+        Object extra;
+    }
+
+    @Test
+    public void encode() throws JSONException {
+        Position position = new Position("p1", 12, 34.5, Kind.PLAYER);
+        position.children = Collections.singletonList(new Position("p2", 1, 2, Kind.BOT));
+        position.scores = Collections.singletonMap("a", 1);
+
+        JSONArray data = new JSONArray().put("position").put(TypedValue.of(position, Position.class));
+        String encoded = encode(data, new ArrayList<byte[]>());
+
+        assertThat(encoded, is("[\"position\",{\"x\":12,\"y\":34.5,\"kind\":\"PLAYER\","
+                + "\"children\":[{\"x\":1,\"y\":2,\"kind\":\"BOT\",\"children\":null,\"scores\":null,\"id\":\"p2\"}],"
+                + "\"scores\":{\"a\":1},\"id\":\"p1\"}]"));
+    }
+
+    @Test
+    public void encodeAttachments() {
+        Image image = new Image();
+        image.name = "a.png";
+        image.data = new byte[] {1, 2, 3};
+
+        final List<Object[]> frames = new ArrayList<>();
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("image").put(TypedValue.of(image, Image.class)));
+        packet.nsp = "/";
+        new IOParser.Encoder().encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                frames.add(data);
+            }
+        });
+
+        Object[] encoded = frames.get(0);
+        assertThat((String) encoded[0], is("51-[\"image\",{\"name\":\"a.png\",\"data\":{\"_placeholder\":true,\"num\":0}}]"));
+        assertThat((byte[]) encoded[1], is(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void encodeJdkValues() {
+        Event event = new Event();
+        event.date = new Date(1500000000123L);
+        event.id = new UUID(1, 2);
+        event.extra = new Date(0);
+
+        assertThat(encode(TypedValue.of(event, Event.class), new ArrayList<byte[]>()),
+                is("{\"date\":\"2017-07-14T02:40:00.123Z\",\"id\":\"00000000-0000-0001-0000-000000000002\","
+                        + "\"extra\":\"1970-01-01T00:00:00.000Z\"}"));
+        assertThat(TypedValue.of(event.date, Date.class).toJSONString(), is("\"2017-07-14T02:40:00.123Z\""));
+    }
+
+    @Test
+    public void convertJdkValues() throws JSONException {
+        JSONObject object = new JSONObject("{\"date\":\"2017-07-14T02:40:00.123Z\","
+                + "\"id\":\"00000000-0000-0001-0000-000000000002\"}");
+
+        Event event = codec.convert(object, Event.class);
+
+        assertThat(event.date, is(new Date(1500000000123L)));
+        assertThat(event.id, is(new UUID(1, 2)));
+        assertThat(codec.convert(1500000000123L, Date.class), is(new Date(1500000000123L)));
+    }
+
+    @Test
+    public void bindDeclaredType() {
+        Position position = new Position("p1", 12, 34.5, Kind.PLAYER);
+
+        assertThat(TypedValue.of((Base) position, Base.class).toJSONString(), is("{\"id\":\"p1\"}"));
+    }
+
+    @Test
+    public void estimateSize() {
+        Image image = new Image();
+        image.name = "a.png";
+        image.data = new byte[1000];
+
+        // {"name":"a.png","data":} and the 1000 bytes of the attachment
+        assertThat(TypedValue.of(image, Image.class).estimatedSize(), is(2 + 15 + 8 + 1000L));
+    }
+
+    @Test
+    public void convert() throws JSONException {
+        JSONObject object = new JSONObject("{\"id\":\"p1\",\"x\":12,\"y\":\"34.5\",\"kind\":\"BOT\","
+                + "\"children\":[{\"x\":1,\"y\":null}],\"scores\":{\"a\":1.5},\"ignored\":\"value\",\"unknown\":true}");
+
+        Position position = codec.convert(object, Position.class);
+
+        assertThat(position.id, is("p1"));
+        assertThat(position.x, is(12));
+        assertThat(position.y, is(34.5));
+        assertThat(position.kind, is(Kind.BOT));
+        assertThat(position.children.size(), is(1));
+        assertThat(position.children.get(0).x, is(1));
+        assertThat(position.children.get(0).y, is(0.0));
+        assertThat(position.scores.get("a"), is(1));
+        assertThat(position.ignored, is("ignored"));
+    }
+
+    @Test
+    public void convertScalarsAndArrays() throws JSONException {
+        assertThat(codec.convert(12, Long.class), is(12L));
+        assertThat(codec.convert("a", String.class), is("a"));
+        assertThat(codec.convert(JSONObject.NULL, String.class), is(nullValue()));
+        assertThat(codec.convert(new JSONArray("[1, 2, 3]"), int[].class), is(new int[] {1, 2, 3}));
+        assertThat(codec.convert(new JSONArray("[\"a\", \"b\"]"), List.class), is((List) Arrays.asList("a", "b")));
+    }
+
+    @Test(expected = DecodingException.class)
+    public void convertInError() throws JSONException {
+        codec.convert(new JSONObject("{\"x\":\"abc\"}"), Position.class);
+    }
+
+    @Test
+    public void decodeArgumentFromLazyPayload() {
+        IOParser.Decoder.Options opts = new IOParser.Decoder.Options();
+        opts.lazyEvents = true;
+        final List<Packet> packets = new ArrayList<>();
+        Parser.Decoder decoder = new IOParser.Decoder(opts);
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        decoder.add("2[\"position\",{\"id\":\"p1\",\"x\":12,\"y\":34.5},{not json}]");
+        decoder.add("2[\"position\"]");
+
+        LazyPayload payload = (LazyPayload) packets.get(0).data;
+        Position position = payload.decodeArgument(Position.class);
+        assertThat(position.id, is("p1"));
+        assertThat(position.x, is(12));
+        assertThat(payload.decodeArgument(Position.class) == position, is(true));
+
+        assertThat(((LazyPayload) packets.get(1).data).decodeArgument(Position.class), is(nullValue()));
+    }
+
+    @Test
+    public void msgpackRoundTrip() {
+        Position position = new Position("p1", 12, 34.5, Kind.PLAYER);
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("position").put(TypedValue.of(position, Position.class)));
+        packet.nsp = "/";
+
+        final List<Object[]> frames = new ArrayList<>();
+        new MsgPackParser.Encoder().encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                frames.add(data);
+            }
+        });
+        final List<Packet> packets = new ArrayList<>();
+        MsgPackParser.Decoder decoder = new MsgPackParser.Decoder();
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        decoder.add((byte[]) frames.get(0)[0]);
+
+        JSONArray data = (JSONArray) packets.get(0).data;
+        Position decoded = codec.convert(data.opt(1), Position.class);
+        assertThat(decoded.id, is("p1"));
+        assertThat(decoded.x, is(12));
+        assertThat(decoded.y, is(34.5));
+        assertThat(decoded.kind, is(Kind.PLAYER));
+    }
+
+    private static String encode(Object data, List<byte[]> attachments) {
+        StringBuilder out = new StringBuilder();
+        codec.encode(data, out, attachments);
+        return out.toString();
+    }
+}